@@ -0,0 +1,60 @@
+package com.example.partneruniversities.benchmarks;
+
+import com.example.partneruniversities.assembler.LinkTemplates;
+import com.example.partneruniversities.assembler.UniversityModelAssembler;
+import com.example.partneruniversities.model.University;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UniversityModelAssembler} for one university and for a page of twenty.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssemblerBenchmark {
+
+    private final UniversityModelAssembler assembler = new UniversityModelAssembler(new LinkTemplates());
+    private University university;
+    private List<University> page;
+
+    @Setup
+    public void setUp() {
+        Fixtures.bindRequest();
+        university = Fixtures.university(42L, 10);
+        page = Fixtures.universities(20, 10);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public EntityModel<University> toModel() {
+        return assembler.toModel(university);
+    }
+
+    @Benchmark
+    public CollectionModel<EntityModel<University>> toCollectionModel() {
+        return assembler.toCollectionModel(page);
+    }
+}
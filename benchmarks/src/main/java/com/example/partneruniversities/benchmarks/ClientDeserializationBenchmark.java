@@ -0,0 +1,79 @@
+package com.example.partneruniversities.benchmarks;
+
+import com.example.partneruniversities.assembler.LinkTemplates;
+import com.example.partneruniversities.assembler.UniversityModelAssembler;
+import com.example.partneruniversities.client.HalClientSupport;
+import com.example.partneruniversities.client.PartnerUniversitiesClient;
+import com.example.partneruniversities.model.University;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a {@code GET /universities} page into the {@code PagedModel} type {@link PartnerUniversitiesClient} asks
+ * for, through the message converters of the client's {@code RestTemplate}. Network I/O is left out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientDeserializationBenchmark {
+
+    private static final Type PAGE_TYPE = new ParameterizedTypeReference<PagedModel<EntityModel<University>>>() {
+    }.getType();
+
+    @Param({"10", "100"})
+    private int universities;
+
+    private GenericHttpMessageConverter<Object> converter;
+    private byte[] body;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        Fixtures.bindRequest();
+        UniversityModelAssembler assembler = new UniversityModelAssembler(new LinkTemplates());
+        body = Fixtures.halMapper().writeValueAsBytes(assembler.toCollectionModel(Fixtures.universities(universities, 3)));
+        RequestContextHolder.resetRequestAttributes();
+
+        for (HttpMessageConverter<?> candidate : HalClientSupport.restTemplate().getMessageConverters()) {
+            if (candidate instanceof GenericHttpMessageConverter<?> generic
+                    && generic.canRead(PAGE_TYPE, null, MediaTypes.HAL_JSON)) {
+                converter = (GenericHttpMessageConverter<Object>) generic;
+                break;
+            }
+        }
+        if (converter == null) {
+            throw new IllegalStateException("No converter reads " + PAGE_TYPE);
+        }
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException {
+        MockHttpInputMessage message = new MockHttpInputMessage(body);
+        message.getHeaders().setContentType(MediaTypes.HAL_JSON);
+        return converter.read(PAGE_TYPE, null, message);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.partneruniversities.benchmarks;
+
+import com.example.partneruniversities.model.Module;
+import com.example.partneruniversities.model.University;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Representative entities, request context and serializers shared by the benchmarks.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static University university(long id, int moduleCount) {
+        University university = new University();
+        university.setId(id);
+        university.setName("University " + id);
+        university.setCountry("Germany");
+        university.setDepartmentName("Computer Science");
+        university.setDepartmentUrl("https://example.org/universities/" + id + "/cs");
+        university.setContactPerson("Exchange Office");
+        university.setMaxOutgoingStudents(10);
+        university.setMaxIncomingStudents(12);
+        university.setNextSpringSemesterStart(LocalDate.of(2025, 3, 1));
+        university.setNextAutumnSemesterStart(LocalDate.of(2025, 9, 1));
+        List<Module> modules = new ArrayList<>();
+        for (int i = 0; i < moduleCount; i++) {
+            Module module = new Module();
+            module.setId(id * 1000 + i);
+            module.setName("Module " + i);
+            module.setSemester(1 + i % 6);
+            module.setCreditPoints(5);
+            module.setUniversity(university);
+            modules.add(module);
+        }
+        university.setModules(modules);
+        return university;
+    }
+
+    static List<University> universities(int count, int moduleCount) {
+        List<University> universities = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            universities.add(university(i, moduleCount));
+        }
+        return universities;
+    }
+
+    /**
+     * Binds a request for {@code http://localhost:8080/universities} to the current thread so links can be built.
+     */
+    static void bindRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/universities");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    /**
+     * An object mapper configured like the one Spring HATEOAS uses to render {@code application/hal+json}.
+     */
+    static ObjectMapper halMapper() {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        return mapper;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.partneruniversities.benchmarks;
+
+import com.example.partneruniversities.assembler.LinkTemplates;
+import com.example.partneruniversities.assembler.UniversityModelAssembler;
+import com.example.partneruniversities.model.University;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HAL rendering of a university with a growing number of embedded modules, as done for {@code GET /universities/{id}}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HalSerializationBenchmark {
+
+    @Param({"0", "10", "100"})
+    private int modules;
+
+    private final ObjectWriter writer = Fixtures.halMapper().writer();
+    private EntityModel<University> model;
+
+    @Setup
+    public void setUp() {
+        Fixtures.bindRequest();
+        model = new UniversityModelAssembler(new LinkTemplates()).toModel(Fixtures.university(42L, modules));
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(model);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.partneruniversities.benchmarks;
+
+import com.example.partneruniversities.PartnerUniversitiesApplication;
+import com.example.partneruniversities.service.BulkImportReport;
+import com.example.partneruniversities.service.UniversityImportService;
+import com.example.partneruniversities.service.UniversitySearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UniversityImportService} ingesting 10,000 universities per operation into an in-memory H2, as NDJSON with
+ * three modules each or as CSV without modules, for several chunk sizes. With {@code failingRowEvery} set, one row
+ * in that many has a name too long for its column, which only the database rejects, so every chunk containing one
+ * is retried row by row. Every third CSV row has a quoted contact person spanning two lines. The imported rows are
+ * deleted after each iteration, so every iteration starts from an empty catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ImportBenchmark {
+
+    private static final int UNIVERSITIES = 10_000;
+    private static final String[] COUNTRIES = {"Germany", "Austria", "Switzerland", "France", "Portugal", "Italy", "Belgium"};
+
+    @Param({"ndjson", "csv"})
+    private String format;
+
+    @Param({"100", "500", "2000"})
+    private int chunkSize;
+
+    @Param({"0", "1000"})
+    private int failingRowEvery;
+
+    private ConfigurableApplicationContext context;
+    private UniversityImportService importService;
+    private UniversitySearchIndex searchIndex;
+    private JdbcTemplate jdbcTemplate;
+    private byte[] body;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(PartnerUniversitiesApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:import-benchmark;DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=warn",
+                        "--logging.level.org.hibernate.SQL=warn",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=warn",
+                        // The rejected rows are expected; every failing batch would be logged as an error
+                        "--logging.level.org.hibernate.engine.jdbc=off");
+        importService = context.getBean(UniversityImportService.class);
+        searchIndex = context.getBean(UniversitySearchIndex.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        body = (format.equals("csv") ? csv() : ndjson()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteImported() {
+        jdbcTemplate.queryForList("SELECT id FROM university", Long.class).forEach(searchIndex::remove);
+        jdbcTemplate.update("DELETE FROM module");
+        jdbcTemplate.update("DELETE FROM university");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BulkImportReport importUniversities() throws IOException {
+        ByteArrayInputStream input = new ByteArrayInputStream(body);
+        return format.equals("csv") ? importService.importCsv(input, chunkSize) : importService.importNdjson(input, chunkSize);
+    }
+
+    private String ndjson() {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < UNIVERSITIES; i++) {
+            ndjson.append("{\"name\":\"").append(name(i))
+                    .append("\",\"country\":\"").append(COUNTRIES[i % COUNTRIES.length])
+                    .append("\",\"departmentName\":\"Computer Science\",\"departmentUrl\":\"https://example.org/").append(i)
+                    .append("\",\"maxIncomingStudents\":").append(i % 40)
+                    .append(",\"modules\":[");
+            for (int m = 0; m < 3; m++) {
+                ndjson.append(m == 0 ? "" : ",").append("{\"name\":\"Module ").append(m)
+                        .append("\",\"semester\":").append(m + 1).append(",\"creditPoints\":5}");
+            }
+            ndjson.append("]}\n");
+        }
+        return ndjson.toString();
+    }
+
+    private String csv() {
+        StringBuilder csv = new StringBuilder("name,country,departmentName,departmentUrl,contactPerson,maxIncomingStudents\r\n");
+        for (int i = 0; i < UNIVERSITIES; i++) {
+            csv.append(name(i)).append(',').append(COUNTRIES[i % COUNTRIES.length])
+                    .append(",Computer Science,https://example.org/").append(i).append(',')
+                    .append(i % 3 == 0 ? "\"International Office\r\nRoom " + i + "\"" : "International Office")
+                    .append(',').append(i % 40).append("\r\n");
+        }
+        return csv.toString();
+    }
+
+    private String name(int i) {
+        return failingRowEvery > 0 && i % failingRowEvery == failingRowEvery - 1
+                ? "University " + i + " " + "x".repeat(300)
+                : "University " + i;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.partneruniversities.benchmarks;
+
+import com.example.partneruniversities.assembler.LinkTemplates;
+import com.example.partneruniversities.assembler.UniversityModelAssembler;
+import com.example.partneruniversities.controller.UniversityController;
+import com.example.partneruniversities.model.University;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * Per-entity cost of the links on a university: {@code linkTo(methodOn(...))} against the precompiled templates.
+ * Both run inside one request, as they would for every entity of a list response.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkTemplatesBenchmark {
+
+    private final UniversityModelAssembler assembler = new UniversityModelAssembler(new LinkTemplates());
+    private University university;
+
+    @Setup
+    public void setUp() {
+        Fixtures.bindRequest();
+        university = Fixtures.university(42L, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public EntityModel<University> methodOnProxies() {
+        EntityModel<University> model = EntityModel.of(university,
+                linkTo(methodOn(UniversityController.class).getUniversityById(university.getId())).withSelfRel());
+        model.add(Link.of(university.getDepartmentUrl(), "departmentUrl"));
+        model.add(linkTo(methodOn(UniversityController.class).getModulesByUniversityId(university.getId())).withRel("modules"));
+        return model;
+    }
+
+    @Benchmark
+    public EntityModel<University> linkTemplates() {
+        return assembler.toModel(university);
+    }
+}
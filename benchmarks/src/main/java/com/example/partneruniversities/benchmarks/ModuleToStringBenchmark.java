@@ -0,0 +1,39 @@
+package com.example.partneruniversities.benchmarks;
+
+import com.example.partneruniversities.model.Module;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Module#toString()}, which the client logs for every module it fetches or creates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModuleToStringBenchmark {
+
+    private Module module;
+
+    @Setup
+    public void setUp() {
+        module = Fixtures.university(42L, 1).getModules().get(0);
+    }
+
+    @Benchmark
+    public String moduleToString() {
+        return module.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.partneruniversities.benchmarks;
+
+import com.example.partneruniversities.PartnerUniversitiesApplication;
+import com.example.partneruniversities.model.University;
+import com.example.partneruniversities.repository.SemesterStartRange;
+import com.example.partneruniversities.service.CursorSlice;
+import com.example.partneruniversities.service.UniversityImportService;
+import com.example.partneruniversities.service.UniversityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UniversityService#searchUniversities} against an in-memory H2 seeded with 500,000 universities of three
+ * modules each, the size the search index is meant for. {@code name} and {@code relevance} are answered from the
+ * search index, {@code maxIncomingStudents} by the database. {@code Zurich} matches one university in eight, all of
+ * them at the end of the name order; {@code in} is too short for trigrams and matches most universities. Sampled so
+ * that the report includes the p99 latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SearchBenchmark {
+
+    private static final int UNIVERSITIES = 500_000;
+    private static final int IMPORT_BATCH = 10_000;
+    private static final String[] CITIES = {"Berlin", "Munich", "Vienna", "Zurich", "Lyon", "Porto", "Turin", "Ghent"};
+    private static final String[] COUNTRIES = {"Germany", "Austria", "Switzerland", "France", "Portugal", "Italy", "Belgium"};
+    private static final String[] DEPARTMENTS = {"Computer Science", "Business", "Mechanical Engineering", "Design"};
+
+    @Param({"name", "relevance", "maxIncomingStudents"})
+    private String sortBy;
+
+    @Param({"false", "true"})
+    private boolean includeModules;
+
+    @Param({"Zurich", "in"})
+    private String query;
+
+    private ConfigurableApplicationContext context;
+    private UniversityService universityService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(PartnerUniversitiesApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=warn",
+                        "--logging.level.org.hibernate.SQL=warn",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=warn");
+        universityService = context.getBean(UniversityService.class);
+
+        UniversityImportService importService = context.getBean(UniversityImportService.class);
+        for (int batch = 0; batch < UNIVERSITIES; batch += IMPORT_BATCH) {
+            StringBuilder ndjson = new StringBuilder();
+            for (int i = batch; i < batch + IMPORT_BATCH; i++) {
+                ndjson.append("{\"name\":\"University of ").append(CITIES[i % CITIES.length]).append(' ').append(i)
+                        .append("\",\"country\":\"").append(COUNTRIES[i % COUNTRIES.length])
+                        .append("\",\"departmentName\":\"").append(DEPARTMENTS[i % DEPARTMENTS.length])
+                        .append("\",\"departmentUrl\":\"https://example.org/").append(i)
+                        .append("\",\"maxIncomingStudents\":").append(i % 40)
+                        .append(",\"modules\":[");
+                for (int m = 0; m < 3; m++) {
+                    ndjson.append(m == 0 ? "" : ",").append("{\"name\":\"Module ").append(m)
+                            .append("\",\"semester\":").append(m + 1).append(",\"creditPoints\":5}");
+                }
+                ndjson.append("]}\n");
+            }
+            importService.importNdjson(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)), null);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CursorSlice<University> search() {
+        return universityService.searchUniversities(query, "", "", SemesterStartRange.UNBOUNDED, 0, 10, sortBy, "asc", null, includeModules);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.partneruniversities.reactive;
+
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * The links of the main API's {@code UniversityModelAssembler} and {@code ModuleModelAssembler}, built on the base
+ * URI of one request. The base URI is resolved once, when the request is handled, and the models are then built on
+ * whichever thread emits the rows.
+ */
+final class CatalogLinks {
+
+    private final String baseUri;
+
+    private CatalogLinks(String baseUri) {
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * Links on the scheme, host, port and context path of the given request.
+     */
+    static CatalogLinks of(ServerHttpRequest request) {
+        String baseUri = UriComponentsBuilder.fromHttpRequest(request)
+                .replacePath(request.getPath().contextPath().value())
+                .replaceQuery(null)
+                .build()
+                .toUriString();
+        return new CatalogLinks(baseUri.endsWith("/") ? baseUri.substring(0, baseUri.length() - 1) : baseUri);
+    }
+
+    EntityModel<UniversityView> university(UniversityView university) {
+        EntityModel<UniversityView> model = EntityModel.of(university, Link.of(baseUri + "/universities/" + university.id()));
+        if (university.departmentUrl() != null) {
+            model.add(Link.of(university.departmentUrl(), "departmentUrl"));
+        }
+        model.add(universityModules(university.id(), LinkRelation.of("modules")));
+        return model;
+    }
+
+    EntityModel<ModuleView> module(ModuleView module) {
+        return EntityModel.of(module,
+                Link.of(baseUri + "/modules/" + module.id()),
+                Link.of(baseUri + "/modules", "modules"));
+    }
+
+    /**
+     * A module as listed under its university, linking to that listing like {@code GET /universities/{id}/modules}.
+     */
+    EntityModel<ModuleView> universityModule(Long universityId, ModuleView module) {
+        return EntityModel.of(module, universityModules(universityId, IanaLinkRelations.SELF));
+    }
+
+    private Link universityModules(Long universityId, LinkRelation relation) {
+        return Link.of(baseUri + "/universities/" + universityId + "/modules", relation);
+    }
+}
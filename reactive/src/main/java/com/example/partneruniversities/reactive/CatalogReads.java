@@ -0,0 +1,162 @@
+package com.example.partneruniversities.reactive;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Map.entry;
+
+/**
+ * Read-only queries on the catalog schema, which the main application migrates and writes. Every result is a
+ * {@link Flux} that reads rows as the subscriber requests them, so a slow client holds back the reads.
+ */
+@Repository
+public class CatalogReads {
+
+    /** Universities whose modules are read with one query. */
+    private static final int MODULE_BATCH_SIZE = 100;
+
+    /** Properties the universities can be sorted by, with their columns. */
+    private static final Map<String, String> SORT_COLUMNS = Map.ofEntries(
+            entry("id", "id"),
+            entry("name", "name"),
+            entry("country", "country"),
+            entry("departmentName", "department_name"),
+            entry("departmentUrl", "department_url"),
+            entry("contactPerson", "contact_person"),
+            entry("maxIncomingStudents", "max_incoming_students"),
+            entry("maxOutgoingStudents", "max_outgoing_students"),
+            entry("nextSpringSemesterStart", "next_spring_semester_start"),
+            entry("nextAutumnSemesterStart", "next_autumn_semester_start"));
+
+    private static final String UNIVERSITY_COLUMNS = "id, name, country, department_name, department_url, contact_person, "
+            + "max_incoming_students, max_outgoing_students, next_spring_semester_start, next_autumn_semester_start";
+    private static final String MODULE_COLUMNS = "id, university_id, name, semester, credit_points";
+
+    private final DatabaseClient databaseClient;
+
+    public CatalogReads(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Universities matching the search, sorted by {@code sortBy} and then by id, with nulls first in ascending order
+     * like the main API. With {@code includeModules}, the modules of every {@value #MODULE_BATCH_SIZE} universities
+     * are read with a single query.
+     *
+     * @throws IllegalArgumentException if {@code sortBy} is not a sortable property
+     */
+    public Flux<UniversityView> findUniversities(UniversitySearch search, String sortBy, boolean ascending, boolean includeModules) {
+        String sortColumn = SORT_COLUMNS.get(sortBy);
+        if (sortColumn == null) {
+            throw new IllegalArgumentException("Cannot sort by: " + sortBy);
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder sql = new StringBuilder("SELECT ").append(UNIVERSITY_COLUMNS).append(" FROM university WHERE 1 = 1");
+        appendContains(sql, parameters, "name", "name", search.name());
+        appendContains(sql, parameters, "country", "country", search.country());
+        appendContains(sql, parameters, "department_name", "departmentName", search.departmentName());
+        appendBound(sql, parameters, "next_spring_semester_start", " >= ", "springFrom", search.springFrom());
+        appendBound(sql, parameters, "next_spring_semester_start", " <= ", "springTo", search.springTo());
+        appendBound(sql, parameters, "next_autumn_semester_start", " >= ", "autumnFrom", search.autumnFrom());
+        appendBound(sql, parameters, "next_autumn_semester_start", " <= ", "autumnTo", search.autumnTo());
+
+        String direction = ascending ? " ASC" : " DESC";
+        sql.append(" ORDER BY ");
+        if (!sortColumn.equals("id")) {
+            sql.append(sortColumn).append(direction).append(ascending ? " NULLS FIRST, " : " NULLS LAST, ");
+        }
+        sql.append("id").append(direction);
+
+        DatabaseClient.GenericExecuteSpec query = databaseClient.sql(sql.toString());
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            query = query.bind(parameter.getKey(), parameter.getValue());
+        }
+        Flux<UniversityView> universities = query.map(CatalogReads::university).all();
+        if (!includeModules) {
+            return universities;
+        }
+        return universities.buffer(MODULE_BATCH_SIZE).concatMap(this::withModules);
+    }
+
+    /**
+     * The modules of one university, in id order. Empty if there is no such university.
+     */
+    public Flux<ModuleView> findModulesByUniversityId(Long universityId) {
+        return databaseClient.sql("SELECT " + MODULE_COLUMNS + " FROM module WHERE university_id = :universityId ORDER BY id")
+                .bind("universityId", universityId)
+                .map(CatalogReads::module)
+                .all();
+    }
+
+    /**
+     * Every module with an id greater than {@code afterId}, in id order.
+     */
+    public Flux<ModuleView> findModulesAfter(long afterId) {
+        return databaseClient.sql("SELECT " + MODULE_COLUMNS + " FROM module WHERE id > :afterId ORDER BY id")
+                .bind("afterId", afterId)
+                .map(CatalogReads::module)
+                .all();
+    }
+
+    private Flux<UniversityView> withModules(List<UniversityView> universities) {
+        List<Long> ids = universities.stream().map(UniversityView::id).toList();
+        Mono<Map<Long, Collection<ModuleView>>> modules = databaseClient
+                .sql("SELECT " + MODULE_COLUMNS + " FROM module WHERE university_id IN (:ids) ORDER BY id")
+                .bind("ids", ids)
+                .map(row -> entry(row.get("university_id", Long.class), module(row)))
+                .all()
+                .collectMultimap(Map.Entry::getKey, Map.Entry::getValue);
+        return modules.flatMapIterable(byUniversity -> universities.stream()
+                .map(university -> university.withModules(List.copyOf(byUniversity.getOrDefault(university.id(), List.of()))))
+                .toList());
+    }
+
+    private static UniversityView university(Readable row) {
+        return new UniversityView(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("country", String.class),
+                row.get("department_name", String.class),
+                row.get("department_url", String.class),
+                row.get("contact_person", String.class),
+                row.get("max_incoming_students", Integer.class),
+                row.get("max_outgoing_students", Integer.class),
+                row.get("next_spring_semester_start", LocalDate.class),
+                row.get("next_autumn_semester_start", LocalDate.class),
+                null);
+    }
+
+    private static ModuleView module(Readable row) {
+        return new ModuleView(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("semester", Integer.class),
+                row.get("credit_points", Integer.class));
+    }
+
+    private static void appendContains(StringBuilder sql, Map<String, Object> parameters, String column, String parameter, String value) {
+        if (value == null) {
+            return;
+        }
+        sql.append(" AND ").append(column).append(" LIKE :").append(parameter).append(" ESCAPE '!'");
+        parameters.put(parameter, "%" + value.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%");
+    }
+
+    private static void appendBound(StringBuilder sql, Map<String, Object> parameters, String column, String operator,
+                                    String parameter, LocalDate bound) {
+        if (bound == null) {
+            return;
+        }
+        sql.append(" AND ").append(column).append(operator).append(":").append(parameter);
+        parameters.put(parameter, bound);
+    }
+}
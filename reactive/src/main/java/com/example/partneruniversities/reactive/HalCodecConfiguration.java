@@ -0,0 +1,35 @@
+package com.example.partneruniversities.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Writes the newline-delimited streams as HAL, like the main API's {@code NdjsonWriter}: links under
+ * {@code _links}, keyed by relation. Registered ahead of the default encoder for {@code application/x-ndjson} only.
+ */
+@Configuration(proxyBeanMethods = false)
+public class HalCodecConfiguration implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    public HalCodecConfiguration(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        ObjectMapper halMapper = objectMapper.copy();
+        halMapper.registerModule(new Jackson2HalModule());
+        halMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        configurer.customCodecs().register(new Jackson2JsonEncoder(halMapper, MediaType.APPLICATION_NDJSON));
+    }
+}
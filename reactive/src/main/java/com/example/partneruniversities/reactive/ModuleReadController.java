@@ -0,0 +1,33 @@
+package com.example.partneruniversities.reactive;
+
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * Streams the modules of the catalog as newline-delimited HAL documents, one module per line.
+ */
+@RestController
+@RequestMapping("/modules")
+public class ModuleReadController {
+
+    private final CatalogReads catalogReads;
+
+    public ModuleReadController(CatalogReads catalogReads) {
+        this.catalogReads = catalogReads;
+    }
+
+    /**
+     * Every module after the optional cursor, in id order.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<EntityModel<ModuleView>> streamModules(@RequestParam(required = false) Long after, ServerHttpRequest request) {
+        CatalogLinks links = CatalogLinks.of(request);
+        return catalogReads.findModulesAfter(after != null ? after : 0L).map(links::module);
+    }
+}
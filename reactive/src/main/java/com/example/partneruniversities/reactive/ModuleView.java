@@ -0,0 +1,7 @@
+package com.example.partneruniversities.reactive;
+
+/**
+ * A module as the main API renders it, without its university.
+ */
+public record ModuleView(Long id, String name, int semester, int creditPoints) {
+}
@@ -0,0 +1,81 @@
+package com.example.partneruniversities.reactive;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Streams the universities of the catalog as newline-delimited HAL documents, one university per line, with the
+ * links of the main API.
+ */
+@RestController
+@RequestMapping("/universities")
+public class UniversityReadController {
+
+    private static final String RELEVANCE = "relevance";
+
+    private final CatalogReads catalogReads;
+
+    public UniversityReadController(CatalogReads catalogReads) {
+        this.catalogReads = catalogReads;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<EntityModel<UniversityView>> streamUniversities(@RequestParam(required = false) Boolean includeModules,
+                                                                ServerHttpRequest request) {
+        CatalogLinks links = CatalogLinks.of(request);
+        return catalogReads.findUniversities(UniversitySearch.ALL, "id", true, !Boolean.FALSE.equals(includeModules))
+                .map(links::university);
+    }
+
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<EntityModel<UniversityView>> streamSearch(
+            @RequestParam(defaultValue = "") String name,
+            @RequestParam(defaultValue = "") String country,
+            @RequestParam(defaultValue = "") String departmentName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate springStartFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate springStartTo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate autumnStartFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate autumnStartTo,
+            @RequestParam(defaultValue = "name") String sortBy,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) Boolean includeModules,
+            ServerHttpRequest request) {
+
+        if (!direction.equalsIgnoreCase("asc") && !direction.equalsIgnoreCase("desc")) {
+            throw new ResponseStatusException(BAD_REQUEST, "direction must be asc or desc");
+        }
+        if (sortBy.equals(RELEVANCE)) {
+            // Relevance is ranked by the main application's in-memory search index
+            throw new ResponseStatusException(BAD_REQUEST, "Sorting by relevance is only available from the main API");
+        }
+        CatalogLinks links = CatalogLinks.of(request);
+        try {
+            UniversitySearch search = new UniversitySearch(name, country, departmentName,
+                    springStartFrom, springStartTo, autumnStartFrom, autumnStartTo);
+            return catalogReads.findUniversities(search, sortBy, direction.equalsIgnoreCase("asc"), !Boolean.FALSE.equals(includeModules))
+                    .map(links::university);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/{universityId}/modules", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<EntityModel<ModuleView>> streamModulesByUniversityId(@PathVariable Long universityId, ServerHttpRequest request) {
+        CatalogLinks links = CatalogLinks.of(request);
+        return catalogReads.findModulesByUniversityId(universityId)
+                .map(module -> links.universityModule(universityId, module));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.partneruniversities.reactive;
+
+import java.time.LocalDate;
+
+/**
+ * Filters of {@code GET /universities/search}: substrings of name, country and department name, and inclusive bounds
+ * on the next semester starts. A null filter or bound is not applied. As in the main API, an empty substring only
+ * matches universities that have a value for the field.
+ */
+public record UniversitySearch(String name, String country, String departmentName,
+                               LocalDate springFrom, LocalDate springTo, LocalDate autumnFrom, LocalDate autumnTo) {
+
+    public static final UniversitySearch ALL = new UniversitySearch(null, null, null, null, null, null, null);
+
+    public UniversitySearch {
+        if (springFrom != null && springTo != null && springFrom.isAfter(springTo)) {
+            throw new IllegalArgumentException("springStartFrom must not be after springStartTo");
+        }
+        if (autumnFrom != null && autumnTo != null && autumnFrom.isAfter(autumnTo)) {
+            throw new IllegalArgumentException("autumnStartFrom must not be after autumnStartTo");
+        }
+    }
+}
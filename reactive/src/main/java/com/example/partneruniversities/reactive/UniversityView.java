@@ -0,0 +1,29 @@
+package com.example.partneruniversities.reactive;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A university as the main API renders it. {@code modules} is null, and left out, when the modules were not read.
+ */
+public record UniversityView(
+        Long id,
+        String name,
+        String country,
+        String departmentName,
+        String departmentUrl,
+        String contactPerson,
+        int maxIncomingStudents,
+        int maxOutgoingStudents,
+        @JsonFormat(shape = JsonFormat.Shape.STRING) LocalDate nextSpringSemesterStart,
+        @JsonFormat(shape = JsonFormat.Shape.STRING) LocalDate nextAutumnSemesterStart,
+        @JsonInclude(JsonInclude.Include.NON_NULL) List<ModuleView> modules) {
+
+    UniversityView withModules(List<ModuleView> modules) {
+        return new UniversityView(id, name, country, departmentName, departmentUrl, contactPerson, maxIncomingStudents,
+                maxOutgoingStudents, nextSpringSemesterStart, nextAutumnSemesterStart, modules);
+    }
+}
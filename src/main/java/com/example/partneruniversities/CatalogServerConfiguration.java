@@ -0,0 +1,24 @@
+package com.example.partneruniversities;
+
+import org.h2.tools.Server;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.sql.SQLException;
+
+/**
+ * Opens the catalog database to other processes on this host, such as the reactive read API in {@code reactive/},
+ * through an H2 TCP server. The schema stays owned by this application: it runs the migrations and all writes.
+ * Only connections from the local host are accepted.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "partner-universities.catalog-server.enabled", havingValue = "true")
+public class CatalogServerConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    Server catalogServer(@Value("${partner-universities.catalog-server.port:9092}") int port) throws SQLException {
+        return Server.createTcpServer("-tcpPort", String.valueOf(port));
+    }
+}
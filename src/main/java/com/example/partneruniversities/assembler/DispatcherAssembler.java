@@ -1,7 +1,8 @@
 package com.example.partneruniversities.assembler;
 
-import com.example.partneruniversities.controller.ModuleController;
+import com.example.partneruniversities.controller.ExportController;
 import com.example.partneruniversities.controller.UniversityController;
+import org.springframework.hateoas.LinkRelation;
 import org.springframework.hateoas.RepresentationModel;
 import org.springframework.stereotype.Component;
 
@@ -11,11 +12,18 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Component
 public class DispatcherAssembler {
 
+    private final LinkTemplates linkTemplates;
+
+    public DispatcherAssembler(LinkTemplates linkTemplates) {
+        this.linkTemplates = linkTemplates;
+    }
+
     public RepresentationModel<?> createDispatcherLinks() {
         RepresentationModel<?> dispatcher = new RepresentationModel<>();
-        dispatcher.add(linkTo(methodOn(UniversityController.class).getAllUniversities(0, 10 )).withRel("universities"));
-        dispatcher.add(linkTo(methodOn(ModuleController.class).getAllModules()).withRel("modules"));
-        dispatcher.add(linkTo(methodOn(UniversityController.class).searchUniversities("", "", "", 0, 10, "name", "asc")).withRel("search"));
+        dispatcher.add(linkTo(methodOn(UniversityController.class).getAllUniversities(0, 10, null, null)).withRel("universities").expand());
+        dispatcher.add(linkTemplates.modules(LinkRelation.of("modules")));
+        dispatcher.add(linkTo(methodOn(UniversityController.class).searchUniversities("", "", "", null, null, null, null, 0, 10, "name", "asc", null, null)).withRel("search").expand());
+        dispatcher.add(linkTo(ExportController.class).withRel("export"));
         return dispatcher;
     }
 }
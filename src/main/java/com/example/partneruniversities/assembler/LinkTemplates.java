@@ -0,0 +1,135 @@
+package com.example.partneruniversities.assembler;
+
+import com.example.partneruniversities.controller.ModuleController;
+import com.example.partneruniversities.controller.UniversityController;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the per-entity links of the API from controller mappings resolved once at startup.
+ * <p>
+ * {@code linkTo(methodOn(...))} creates a proxy, records the invocation and resolves the mapping reflectively for
+ * every link. Here each mapping is split into literal parts and path variables up front, so a link is the current
+ * request's base URI (computed once per request, like {@code WebMvcLinkBuilder} does) followed by the parts with the
+ * ids filled in. The hrefs are identical to the ones {@code WebMvcLinkBuilder} produces.
+ */
+@Component
+public class LinkTemplates {
+
+    private static final String BASE_URI_ATTRIBUTE = LinkTemplates.class.getName() + ".baseUri";
+
+    private final LinkTemplate university = LinkTemplate.of(UniversityController.class, "getUniversityById", Long.class);
+    private final LinkTemplate universityModules = LinkTemplate.of(UniversityController.class, "getModulesByUniversityId", Long.class);
+    private final LinkTemplate module = LinkTemplate.of(ModuleController.class, "getModuleById", Long.class);
+    private final LinkTemplate modules = LinkTemplate.of(ModuleController.class);
+
+    public Link university(Long id) {
+        return university.link(IanaLinkRelations.SELF, id);
+    }
+
+    public Link universityModules(Long id, LinkRelation relation) {
+        return universityModules.link(relation, id);
+    }
+
+    public Link module(Long id) {
+        return module.link(IanaLinkRelations.SELF, id);
+    }
+
+    public Link modules(LinkRelation relation) {
+        return modules.link(relation);
+    }
+
+    /**
+     * Scheme, host, port and context path of the current request, or an empty string outside of a request.
+     */
+    static String baseUri() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return "";
+        }
+        String baseUri = (String) attributes.getAttribute(BASE_URI_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (baseUri == null) {
+            baseUri = ServletUriComponentsBuilder.fromCurrentServletMapping().build().toUriString();
+            if (baseUri.endsWith("/")) {
+                baseUri = baseUri.substring(0, baseUri.length() - 1);
+            }
+            attributes.setAttribute(BASE_URI_ATTRIBUTE, baseUri, RequestAttributes.SCOPE_REQUEST);
+        }
+        return baseUri;
+    }
+
+    /**
+     * A controller mapping split into literal parts around its path variables:
+     * {@code /universities/{id}/modules} becomes {@code ["/universities/", "/modules"]}.
+     */
+    static final class LinkTemplate {
+
+        private final String[] literals;
+
+        private LinkTemplate(String[] literals) {
+            this.literals = literals;
+        }
+
+        static LinkTemplate of(Class<?> controller, String methodName, Class<?>... parameterTypes) {
+            Method method = ReflectionUtils.findMethod(controller, methodName, parameterTypes);
+            if (method == null) {
+                throw new IllegalStateException("No handler method " + controller.getSimpleName() + "." + methodName);
+            }
+            return parse(mapping(controller) + mapping(method));
+        }
+
+        static LinkTemplate of(Class<?> controller) {
+            return parse(mapping(controller));
+        }
+
+        Link link(LinkRelation relation, Object... variables) {
+            if (variables.length != literals.length - 1) {
+                throw new IllegalArgumentException("Expected " + (literals.length - 1) + " variables but got " + variables.length);
+            }
+            StringBuilder href = new StringBuilder(baseUri()).append(literals[0]);
+            for (int i = 0; i < variables.length; i++) {
+                href.append(variables[i]).append(literals[i + 1]);
+            }
+            return Link.of(href.toString(), relation);
+        }
+
+        private static String mapping(AnnotatedElement element) {
+            RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(element, RequestMapping.class);
+            if (mapping == null || mapping.path().length == 0) {
+                return "";
+            }
+            return mapping.path()[0];
+        }
+
+        private static LinkTemplate parse(String path) {
+            List<String> literals = new ArrayList<>();
+            int start = 0;
+            int open;
+            while ((open = path.indexOf('{', start)) >= 0) {
+                literals.add(path.substring(start, open));
+                start = path.indexOf('}', open) + 1;
+            }
+            literals.add(path.substring(start));
+            return new LinkTemplate(literals.toArray(String[]::new));
+        }
+
+        @Override
+        public String toString() {
+            return String.join("{}", Arrays.asList(literals));
+        }
+    }
+}
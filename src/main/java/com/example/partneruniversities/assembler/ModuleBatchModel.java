@@ -0,0 +1,30 @@
+package com.example.partneruniversities.assembler;
+
+import com.example.partneruniversities.model.Module;
+import com.example.partneruniversities.service.ModuleBatchResult;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.RepresentationModel;
+
+import java.util.List;
+
+/**
+ * Response body of {@code POST /modules/batch}: the created modules with their links and the rejected entries.
+ */
+public class ModuleBatchModel extends RepresentationModel<ModuleBatchModel> {
+
+    private final List<EntityModel<Module>> created;
+    private final List<ModuleBatchResult.Rejection> rejected;
+
+    public ModuleBatchModel(List<EntityModel<Module>> created, List<ModuleBatchResult.Rejection> rejected) {
+        this.created = created;
+        this.rejected = rejected;
+    }
+
+    public List<EntityModel<Module>> getCreated() {
+        return created;
+    }
+
+    public List<ModuleBatchResult.Rejection> getRejected() {
+        return rejected;
+    }
+}
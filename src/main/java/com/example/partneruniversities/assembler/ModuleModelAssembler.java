@@ -1,27 +1,31 @@
 package com.example.partneruniversities.assembler;
 
-import com.example.partneruniversities.controller.ModuleController;
 import com.example.partneruniversities.model.Module;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.LinkRelation;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
-
 /**
  * Assembler class to convert Module entities into HATEOAS-compliant models.
  */
 @Component
 public class ModuleModelAssembler implements RepresentationModelAssembler<Module, EntityModel<Module>> {
 
+    private final LinkTemplates linkTemplates;
+
+    public ModuleModelAssembler(LinkTemplates linkTemplates) {
+        this.linkTemplates = linkTemplates;
+    }
 
     @Override
     public @NotNull EntityModel<Module> toModel(@NotNull Module module) {
         return EntityModel.of(module,
-                linkTo(methodOn(ModuleController.class).getModuleById(module.getId())).withSelfRel(),
-                linkTo(methodOn(ModuleController.class).getAllModules()).withRel("modules"));
+                linkTemplates.module(module.getId()),
+                linkTemplates.modules(LinkRelation.of("modules")));
     }
 
     @Override
@@ -30,7 +34,7 @@ public class ModuleModelAssembler implements RepresentationModelAssembler<Module
         CollectionModel<EntityModel<Module>> moduleModels = RepresentationModelAssembler.super.toCollectionModel(entities);
 
         // Add a self link to the collection model
-        moduleModels.add(linkTo(methodOn(ModuleController.class).getAllModules()).withSelfRel());
+        moduleModels.add(linkTemplates.modules(IanaLinkRelations.SELF));
 
         return moduleModels;
     }
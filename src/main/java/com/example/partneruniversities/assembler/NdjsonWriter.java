@@ -0,0 +1,38 @@
+package com.example.partneruniversities.assembler;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes representation models as newline-delimited JSON, one HAL document per line.
+ */
+@Component
+public class NdjsonWriter {
+
+    private final ObjectWriter writer;
+
+    public NdjsonWriter(ObjectMapper objectMapper) {
+        ObjectMapper halMapper = objectMapper.copy();
+        halMapper.registerModule(new Jackson2HalModule());
+        halMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        this.writer = halMapper.writer().withRootValueSeparator("\n");
+    }
+
+    /**
+     * Opens a sequence writer on the given stream. Closing the returned writer does not close the stream.
+     */
+    public SequenceWriter open(OutputStream outputStream) throws IOException {
+        return writer.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValues(outputStream);
+    }
+}
@@ -6,6 +6,7 @@ import org.jetbrains.annotations.NotNull;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 
@@ -14,17 +15,24 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
 @Component
 public class UniversityModelAssembler implements RepresentationModelAssembler<University, EntityModel<University>> {
 
+    private final LinkTemplates linkTemplates;
+
+    public UniversityModelAssembler(LinkTemplates linkTemplates) {
+        this.linkTemplates = linkTemplates;
+    }
+
     @Override
     public @NotNull EntityModel<University> toModel(@NotNull University university) {
         // Create the self link for the university
-        EntityModel<University> universityModel = EntityModel.of(university,
-                linkTo(methodOn(UniversityController.class).getUniversityById(university.getId())).withSelfRel());
+        EntityModel<University> universityModel = EntityModel.of(university, linkTemplates.university(university.getId()));
 
-        // Add the department URL as a link
-        universityModel.add(Link.of(university.getDepartmentUrl(), "departmentUrl"));
+        // Add the department URL as a link, if there is one
+        if (university.getDepartmentUrl() != null) {
+            universityModel.add(Link.of(university.getDepartmentUrl(), "departmentUrl"));
+        }
 
         // Add link to the modules related to this university
-        universityModel.add(linkTo(methodOn(UniversityController.class).getModulesByUniversityId(university.getId())).withRel("modules"));
+        universityModel.add(linkTemplates.universityModules(university.getId(), LinkRelation.of("modules")));
 
         return universityModel;
     }
@@ -37,8 +45,8 @@ public class UniversityModelAssembler implements RepresentationModelAssembler<Un
         int defaultPage = 0;
         int defaultSize = 10;
 
-        universityModels.add(linkTo(methodOn(UniversityController.class).getAllUniversities(defaultPage, defaultSize)).withSelfRel());
-        universityModels.add(linkTo(methodOn(UniversityController.class).searchUniversities("", "", "", defaultPage, defaultSize, "name", "asc")).withRel("search"));
+        universityModels.add(linkTo(methodOn(UniversityController.class).getAllUniversities(defaultPage, defaultSize, null, null)).withSelfRel().expand());
+        universityModels.add(linkTo(methodOn(UniversityController.class).searchUniversities("", "", "", null, null, null, null, defaultPage, defaultSize, "name", "asc", null, null)).withRel("search").expand());
 
         return universityModels;
     }
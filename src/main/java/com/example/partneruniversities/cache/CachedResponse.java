@@ -0,0 +1,45 @@
+package com.example.partneruniversities.cache;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * A rendered response body together with the headers that were sent with it.
+ */
+public record CachedResponse(byte[] body, HttpHeaders headers) {
+
+    /**
+     * Captures the body and headers a request has rendered into {@code wrapper}.
+     */
+    public static CachedResponse of(ContentCachingResponseWrapper wrapper) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : wrapper.getHeaderNames()) {
+            headers.addAll(name, wrapper.getHeaders(name).stream().toList());
+        }
+        if (wrapper.getContentType() != null) {
+            headers.set(HttpHeaders.CONTENT_TYPE, wrapper.getContentType());
+        }
+        return new CachedResponse(wrapper.getContentAsByteArray(), headers);
+    }
+
+    public long size() {
+        return body.length;
+    }
+
+    /**
+     * Sends the headers and body to {@code response}.
+     */
+    public void writeTo(HttpServletResponse response) throws IOException {
+        headers.forEach((name, values) -> {
+            response.setHeader(name, values.get(0));
+            values.subList(1, values.size()).forEach(value -> response.addHeader(name, value));
+        });
+        if (body.length > 0) {
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+}
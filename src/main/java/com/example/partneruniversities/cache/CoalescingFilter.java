@@ -0,0 +1,99 @@
+package com.example.partneruniversities.cache;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Coalesces identical concurrent {@code GET /universities/{id}}, {@code GET /universities/search} and
+ * {@code GET /modules/{id}} requests through the {@link RequestCoalescer}. Requests are identical when they have the
+ * same URL, query string, {@code Accept} and {@code If-None-Match} headers. Every other request that may write
+ * invalidates the flights in progress both before it runs and once it has completed.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class CoalescingFilter extends OncePerRequestFilter {
+
+    private static final Pattern COALESCED_PATH = Pattern.compile("^/(universities/(\\d+|search)|modules/\\d+)$");
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final RequestCoalescer coalescer;
+
+    public CoalescingFilter(RequestCoalescer coalescer) {
+        this.coalescer = coalescer;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !coalescer.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!SAFE_METHODS.contains(request.getMethod())) {
+            // Reads arriving while the write runs may see it half done, so they must not join flights from before it
+            coalescer.invalidate();
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                coalescer.invalidate();
+            }
+            return;
+        }
+        if (!isCoalesced(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RequestCoalescer.Flight flight = coalescer.join(key(request));
+        if (!flight.lead()) {
+            RequestCoalescer.Response shared = flight.await();
+            if (shared != null) {
+                response.setStatus(shared.status());
+                shared.response().writeTo(response);
+            } else {
+                filterChain.doFilter(request, response);
+            }
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        RequestCoalescer.Response rendered = null;
+        try {
+            filterChain.doFilter(request, wrapper);
+            // Server errors may be transient, so the waiting requests try for themselves
+            if (wrapper.getStatus() < 500) {
+                rendered = new RequestCoalescer.Response(wrapper.getStatus(), CachedResponse.of(wrapper));
+            }
+        } finally {
+            flight.complete(rendered);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private static boolean isCoalesced(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return "GET".equals(request.getMethod())
+                && (accept == null || !accept.contains(MediaType.APPLICATION_NDJSON_VALUE))
+                && COALESCED_PATH.matcher(request.getRequestURI().substring(request.getContextPath().length())).matches();
+    }
+
+    private static String key(HttpServletRequest request) {
+        return request.getRequestURL() + "?" + request.getQueryString()
+                + "|" + request.getHeader(HttpHeaders.ACCEPT)
+                + "|" + request.getHeader(HttpHeaders.IF_NONE_MATCH);
+    }
+}
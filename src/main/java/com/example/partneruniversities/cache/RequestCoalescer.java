@@ -0,0 +1,139 @@
+package com.example.partneruniversities.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-flight for identical concurrent reads: the first request for a key renders the response and every request
+ * for the same key that arrives while it is in flight waits for it and is sent the same response. A request that has
+ * waited {@code partner-universities.coalescing.max-wait} renders its own response instead, so a stuck leader does
+ * not hold up the requests queued behind it.
+ * <p>
+ * Every write starts a new generation when it begins and another when it has completed. A request only joins a
+ * flight of the current generation, so no reader is answered with a response that was started before a write it could
+ * already observe, or while one was still in progress.
+ */
+@Component
+public class RequestCoalescer {
+
+    private final boolean enabled;
+    private final Duration maxWait;
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public RequestCoalescer(@Value("${partner-universities.coalescing.enabled:true}") boolean enabled,
+                            @Value("${partner-universities.coalescing.max-wait:2s}") Duration maxWait) {
+        this.enabled = enabled;
+        this.maxWait = maxWait;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The flight for {@code key}, started by this call unless an identical request of the current generation is
+     * in flight. Exactly one caller of a flight gets {@code true} from {@link Flight#lead()}.
+     */
+    public Flight join(String key) {
+        long current = generation.get();
+        return flights.compute(key, (k, existing) -> existing != null && existing.generation == current
+                ? existing : new Flight(k, current));
+    }
+
+    /**
+     * Called before and after every write; requests arriving from now on no longer join flights started before it.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        invalidations.increment();
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("executions", executions.sum());
+        statistics.put("coalesced", coalesced.sum());
+        statistics.put("invalidations", invalidations.sum());
+        statistics.put("timedOut", timedOut.sum());
+        statistics.put("inFlight", flights.size());
+        return statistics;
+    }
+
+    /**
+     * A response shared between coalesced requests.
+     */
+    public record Response(int status, CachedResponse response) {
+    }
+
+    public final class Flight {
+
+        private final String key;
+        private final long generation;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<Response> result = new CompletableFuture<>();
+
+        private Flight(String key, long generation) {
+            this.key = key;
+            this.generation = generation;
+        }
+
+        /**
+         * Whether the caller is the one to render the response, in which case it must call {@link #complete}.
+         */
+        public boolean lead() {
+            boolean leader = claimed.compareAndSet(false, true);
+            if (leader) {
+                executions.increment();
+            }
+            return leader;
+        }
+
+        /**
+         * Hands the leader's response to the waiting requests, or {@code null} if it cannot be shared, in which case
+         * each of them renders its own.
+         */
+        public void complete(Response response) {
+            flights.remove(key, this);
+            result.complete(response);
+        }
+
+        /**
+         * Waits up to the maximum wait for the leader and returns its response, or {@code null} if the caller has to
+         * render its own.
+         */
+        public Response await() {
+            try {
+                Response response = result.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+                if (response != null) {
+                    coalesced.increment();
+                }
+                return response;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                return null;
+            } catch (TimeoutException e) {
+                timedOut.increment();
+                return null;
+            }
+        }
+    }
+}
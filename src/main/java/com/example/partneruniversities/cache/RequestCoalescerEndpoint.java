@@ -0,0 +1,27 @@
+package com.example.partneruniversities.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes how many requests the {@link RequestCoalescer} rendered and how many it coalesced at
+ * {@code /actuator/coalescing}.
+ */
+@Component
+@Endpoint(id = "coalescing")
+public class RequestCoalescerEndpoint {
+
+    private final RequestCoalescer coalescer;
+
+    public RequestCoalescerEndpoint(RequestCoalescer coalescer) {
+        this.coalescer = coalescer;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return coalescer.statistics();
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.partneruniversities.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size-bounded, approximately LRU cache of fully rendered GET responses for single resources.
+ * <p>
+ * Entries are grouped per resource (for example {@code universities/1}) and, within a resource, per variant
+ * (request URL and {@code Accept} header), so one invalidation drops every rendering of that resource.
+ * A response may only be stored if its resource was not invalidated while it was being rendered: every resource
+ * hashes to one of {@value #GENERATION_STRIPES} generation stamps, which its invalidations advance. Writes to other
+ * resources sharing the stamp at most keep a response out of the cache.
+ * <p>
+ * Reads take no lock. Stores and invalidations of the same resource are serialized by the map. Every hit records
+ * when the resource was last read, and once the cache is over its size, one storing thread evicts the least
+ * recently read resources until it is down to {@value #EVICTION_TARGET_PERCENT}% of it, so the entries are only
+ * scanned once in a while.
+ */
+@Component
+public class ResponseCache {
+
+    public static final String UNIVERSITIES = "universities";
+    public static final String MODULES = "modules";
+
+    private static final int GENERATION_STRIPES = 1024;
+    private static final int EVICTION_TARGET_PERCENT = 90;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final ConcurrentHashMap<String, Resource> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLong bytes = new AtomicLong();
+    private final ReentrantLock evicting = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ResponseCache(@Value("${partner-universities.response-cache.enabled:true}") boolean enabled,
+                         @Value("${partner-universities.response-cache.max-bytes:16777216}") long maxBytes) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Current generation of {@code resource}; pass it back to {@link #put} to detect writes that raced with rendering.
+     */
+    public long generation(String resource) {
+        return generations.get(stripe(resource));
+    }
+
+    public CachedResponse get(String resource, String variant) {
+        Resource entry = entries.get(resource);
+        CachedResponse response = entry == null ? null : entry.variants.get(variant);
+        if (response == null) {
+            misses.increment();
+        } else {
+            entry.lastRead = System.nanoTime();
+            hits.increment();
+        }
+        return response;
+    }
+
+    public void put(String resource, String variant, CachedResponse response, long renderedAtGeneration) {
+        if (response.size() > maxBytes) {
+            return;
+        }
+        int stripe = stripe(resource);
+        entries.compute(resource, (key, entry) -> {
+            if (generations.get(stripe) != renderedAtGeneration) {
+                return entry;
+            }
+            Map<String, CachedResponse> variants = entry == null ? new HashMap<>() : new HashMap<>(entry.variants);
+            CachedResponse previous = variants.put(variant, response);
+            bytes.addAndGet(response.size() - (previous == null ? 0 : previous.size()));
+            return new Resource(Map.copyOf(variants));
+        });
+        if (bytes.get() > maxBytes) {
+            evict(resource);
+        }
+    }
+
+    public void invalidate(String type, Long id) {
+        if (id == null) {
+            return;
+        }
+        String resource = type + "/" + id;
+        int stripe = stripe(resource);
+        entries.compute(resource, (key, entry) -> {
+            generations.incrementAndGet(stripe);
+            if (entry != null) {
+                bytes.addAndGet(-entry.size());
+            }
+            return null;
+        });
+        invalidations.increment();
+    }
+
+    public void invalidate(String type, List<Long> ids) {
+        ids.forEach(id -> invalidate(type, id));
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("hits", hits.sum());
+        statistics.put("misses", misses.sum());
+        statistics.put("evictions", evictions.sum());
+        statistics.put("invalidations", invalidations.sum());
+        statistics.put("resources", entries.size());
+        statistics.put("bytes", bytes.get());
+        statistics.put("maxBytes", maxBytes);
+        return statistics;
+    }
+
+    /**
+     * Drops the least recently read resources other than {@code stored} until the cache is down to its eviction
+     * target. Threads that find another one evicting leave it to that one.
+     */
+    private void evict(String stored) {
+        if (!evicting.tryLock()) {
+            return;
+        }
+        try {
+            long target = maxBytes / 100 * EVICTION_TARGET_PERCENT;
+            if (bytes.get() <= maxBytes) {
+                return;
+            }
+            // The read times are taken once, as reads keep changing them while the candidates are sorted
+            List<Candidate> byLastRead = new ArrayList<>(entries.size());
+            entries.forEach((resource, entry) -> byLastRead.add(new Candidate(resource, entry, entry.lastRead)));
+            byLastRead.sort(Comparator.comparingLong(Candidate::lastRead));
+            for (Candidate candidate : byLastRead) {
+                if (bytes.get() <= target) {
+                    break;
+                }
+                if (!candidate.resource().equals(stored) && entries.remove(candidate.resource(), candidate.entry())) {
+                    bytes.addAndGet(-candidate.entry().size());
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evicting.unlock();
+        }
+    }
+
+    private static int stripe(String resource) {
+        return (resource.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+    private record Candidate(String resource, Resource entry, long lastRead) {
+    }
+
+    /**
+     * The renderings of one resource. A store replaces the whole entry, so reads never see it change.
+     */
+    private static final class Resource {
+
+        private final Map<String, CachedResponse> variants;
+        private final long size;
+        private volatile long lastRead = System.nanoTime();
+
+        private Resource(Map<String, CachedResponse> variants) {
+            this.variants = variants;
+            this.size = variants.values().stream().mapToLong(CachedResponse::size).sum();
+        }
+
+        private long size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.partneruniversities.cache;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves {@code GET /universities/{id}} and {@code GET /modules/{id}} from the {@link ResponseCache}, and stores
+ * successful responses for those resources after they have been rendered. Conditional requests are answered from the
+ * stored ETag. Runs ahead of the {@link CoalescingFilter}, so only cache misses are coalesced.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Pattern ENTITY_PATH = Pattern.compile("^/(universities|modules)/(\\d+)$");
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheFilter(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !responseCache.isEnabled()
+                || !"GET".equals(request.getMethod())
+                || !ENTITY_PATH.matcher(request.getRequestURI().substring(request.getContextPath().length())).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Matcher matcher = ENTITY_PATH.matcher(request.getRequestURI().substring(request.getContextPath().length()));
+        matcher.matches();
+        String resource = matcher.group(1) + "/" + matcher.group(2);
+        String variant = request.getRequestURL() + "|" + request.getHeader(HttpHeaders.ACCEPT);
+
+        CachedResponse cached = responseCache.get(resource, variant);
+        if (cached != null) {
+            String etag = cached.headers().getETag();
+            if (etag != null && new ServletWebRequest(request, response).checkNotModified(etag)) {
+                return;
+            }
+            cached.writeTo(response);
+            return;
+        }
+
+        long generation = responseCache.generation(resource);
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        if (wrapper.getStatus() == HttpStatus.OK.value()) {
+            responseCache.put(resource, variant, CachedResponse.of(wrapper), generation);
+        }
+        wrapper.copyBodyToResponse();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.partneruniversities.client;
+
+import org.springframework.hateoas.EntityModel;
+
+import java.util.Map;
+
+/**
+ * Outcome of fetching several resources by id. Both maps are keyed by id and iterate in the order the ids were
+ * given, each id appearing once in exactly one of them.
+ *
+ * @param found  the resources fetched successfully
+ * @param failed the exception each remaining id failed with, typically an {@code HttpClientErrorException}
+ */
+public record BatchFetchResult<T>(Map<Long, EntityModel<T>> found, Map<Long, Exception> failed) {
+
+    public boolean hasFailures() {
+        return !failed.isEmpty();
+    }
+}
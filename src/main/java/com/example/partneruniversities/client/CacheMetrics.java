@@ -0,0 +1,26 @@
+package com.example.partneruniversities.client;
+
+import java.net.URI;
+
+/**
+ * Receives the outcome of every request answered through a {@link ClientResponseCache}, e.g. to feed counters of
+ * the hit ratio and the bytes saved into a metrics registry.
+ */
+public interface CacheMetrics {
+
+    CacheMetrics NONE = new CacheMetrics() {
+    };
+
+    /**
+     * The server confirmed the cached representation with {@code 304 Not Modified}; {@code bytesSaved} is the size
+     * of the body that was neither transferred nor deserialized.
+     */
+    default void hit(URI uri, long bytesSaved) {
+    }
+
+    /**
+     * The representation was not cached or had changed, and a body of {@code bytesRead} bytes was read.
+     */
+    default void miss(URI uri, long bytesRead) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.partneruniversities.client;
+
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.function.Supplier;
+
+/**
+ * A request factory whose requests can be aborted from another thread. A call made through {@link #call} on a
+ * {@link Handle} registers the connections it opens with that handle, and {@link Handle#cancel()} disconnects them,
+ * which ends a request that is still waiting for, or reading, its response.
+ */
+final class CancellableRequestFactory extends SimpleClientHttpRequestFactory {
+
+    private static final ThreadLocal<Handle> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Makes the requests {@code call} sends on this thread cancellable through {@code handle}.
+     */
+    static <T> T call(Handle handle, Supplier<T> call) {
+        CURRENT.set(handle);
+        try {
+            return call.get();
+        } finally {
+            CURRENT.remove();
+            handle.finished();
+        }
+    }
+
+    /**
+     * Whether the request being made on this thread has been cancelled, so a failure of it says nothing about the
+     * endpoint.
+     */
+    static boolean isCancelled() {
+        Handle handle = CURRENT.get();
+        return handle != null && handle.isCancelled();
+    }
+
+    @Override
+    protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+        super.prepareConnection(connection, httpMethod);
+        Handle handle = CURRENT.get();
+        if (handle != null && !handle.register(connection)) {
+            throw new IOException("Request cancelled");
+        }
+    }
+
+    static final class Handle {
+
+        private HttpURLConnection connection;
+        private boolean cancelled;
+        private boolean finished;
+
+        /**
+         * Disconnects the request if it is still running; requests it would send later fail right away.
+         */
+        synchronized void cancel() {
+            if (finished || cancelled) {
+                return;
+            }
+            cancelled = true;
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        private synchronized boolean register(HttpURLConnection connection) {
+            this.connection = connection;
+            return !cancelled;
+        }
+
+        private synchronized void finished() {
+            finished = true;
+            connection = null;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.partneruniversities.client;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Connection settings of {@link PartnerUniversitiesAsyncClient}.
+ *
+ * @param dispatcherUri          entry point the resource links are discovered from
+ * @param maxConnectionsPerHost  requests in flight to one host at a time; further requests wait in a queue
+ * @param http2                  negotiate HTTP/2 (falls back to HTTP/1.1 when the server does not support it)
+ * @param gzip                   ask for gzip-compressed responses
+ * @param threads                threads completing the futures and parsing response bodies
+ * @param connectTimeout         timeout for establishing a connection
+ * @param requestTimeout         timeout for a whole request, from sending it to receiving the response
+ */
+public record ClientOptions(URI dispatcherUri, int maxConnectionsPerHost, boolean http2, boolean gzip, int threads,
+                            Duration connectTimeout, Duration requestTimeout) {
+
+    public ClientOptions {
+        if (maxConnectionsPerHost < 1 || threads < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerHost and threads must be positive");
+        }
+    }
+
+    public static ClientOptions defaults() {
+        return new ClientOptions(URI.create("http://localhost:8080/"), 64, false, true, 4,
+                Duration.ofSeconds(5), Duration.ofSeconds(30));
+    }
+}
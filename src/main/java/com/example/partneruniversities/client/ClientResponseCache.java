@@ -0,0 +1,102 @@
+package com.example.partneruniversities.client;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded in-process cache of deserialized responses for {@link PartnerUniversitiesClient}, keyed by URI.
+ * <p>
+ * Entries are stored with the validators the server sent and are always revalidated with {@code If-None-Match}
+ * (or {@code If-Modified-Since}), so a hit saves the transfer and the deserialization of the body, not the round
+ * trip. The least recently used entry is evicted once {@code maxEntries} is reached. Cached models are shared
+ * between callers and must not be modified.
+ */
+public class ClientResponseCache {
+
+    record Entry(Object body, String etag, String lastModified, long bytes) {
+    }
+
+    private final Map<URI, Entry> entries;
+    private final CacheMetrics metrics;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    public ClientResponseCache(int maxEntries, CacheMetrics metrics) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.metrics = metrics;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<URI, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public ClientResponseCache(int maxEntries) {
+        this(maxEntries, CacheMetrics.NONE);
+    }
+
+    synchronized Entry get(URI uri) {
+        return entries.get(uri);
+    }
+
+    synchronized void put(URI uri, Entry entry) {
+        entries.put(uri, entry);
+    }
+
+    /**
+     * Drops every entry for the path of {@code uri}, whatever its query, and every entry below it, e.g. a
+     * university together with its module list.
+     */
+    public void invalidate(URI uri) {
+        invalidate(uri, true);
+    }
+
+    synchronized void invalidate(URI uri, boolean includeSubPaths) {
+        String path = uri.getPath();
+        String prefix = path + "/";
+        entries.keySet().removeIf(key -> key.getPath().equals(path) || includeSubPaths && key.getPath().startsWith(prefix));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    void recordHit(URI uri, long bytes) {
+        hits.increment();
+        bytesSaved.add(bytes);
+        metrics.hit(uri, bytes);
+    }
+
+    void recordMiss(URI uri, long bytes) {
+        misses.increment();
+        metrics.miss(uri, bytes);
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long bytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    public double hitRatio() {
+        long hits = hits();
+        long total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
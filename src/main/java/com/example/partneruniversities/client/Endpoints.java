@@ -0,0 +1,228 @@
+package com.example.partneruniversities.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.client.Traverson;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The replicas a {@link PartnerUniversitiesClient} talks to. Every request made through the client's
+ * {@link RestTemplate} is timed by {@link #interceptor()}, which keeps an exponentially weighted moving average
+ * and a window of recent latencies per endpoint and takes an endpoint out of rotation for a while when it fails.
+ */
+final class Endpoints {
+
+    private static final Logger logger = LoggerFactory.getLogger(Endpoints.class);
+
+    /** How long an endpoint that failed is skipped before it is tried again. */
+    static final Duration RETRY_AFTER = Duration.ofSeconds(5);
+
+    private final List<Endpoint> endpoints;
+    private final Map<String, Endpoint> byAuthority;
+    private volatile Endpoint writeEndpoint;
+
+    Endpoints(List<URI> dispatcherUris, RestTemplate restTemplate) {
+        if (dispatcherUris.isEmpty()) {
+            throw new IllegalArgumentException("At least one dispatcher URI is required");
+        }
+        this.endpoints = dispatcherUris.stream().map(uri -> new Endpoint(uri, restTemplate)).toList();
+        this.byAuthority = endpoints.stream().collect(Collectors.toMap(Endpoint::authority, endpoint -> endpoint, (first, second) -> first));
+    }
+
+    List<Endpoint> all() {
+        return endpoints;
+    }
+
+    /**
+     * Endpoints in the order reads should try them: healthy ones fastest first (an endpoint without samples yet
+     * counts as fastest so it gets measured), then the ones out of rotation, soonest back first.
+     */
+    List<Endpoint> forReads() {
+        long now = System.nanoTime();
+        List<Endpoint> ordered = new ArrayList<>(endpoints);
+        ordered.sort(Comparator.<Endpoint, Boolean>comparing(endpoint -> !endpoint.isHealthy(now))
+                .thenComparingDouble(endpoint -> endpoint.isHealthy(now) ? endpoint.ewmaNanos() : endpoint.unhealthyUntil));
+        return ordered;
+    }
+
+    /**
+     * The endpoint all writes go to. It stays the same until it fails, so a caller's writes are applied in order by
+     * one replica; then the first healthy endpoint in configuration order takes over.
+     */
+    Endpoint forWrites() {
+        Endpoint pinned = writeEndpoint;
+        long now = System.nanoTime();
+        if (pinned != null && pinned.isHealthy(now)) {
+            return pinned;
+        }
+        Endpoint next = endpoints.stream().filter(endpoint -> endpoint.isHealthy(now)).findFirst().orElse(endpoints.get(0));
+        if (next != pinned) {
+            logger.info("Pinning writes to {}", next);
+            writeEndpoint = next;
+        }
+        return next;
+    }
+
+    ClientHttpRequestInterceptor interceptor() {
+        return (request, body, execution) -> {
+            Endpoint endpoint = byAuthority.get(authority(request.getURI()));
+            long start = System.nanoTime();
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                if (endpoint != null) {
+                    if (isUnavailable(response.getStatusCode())) {
+                        endpoint.failed();
+                    } else {
+                        endpoint.record(System.nanoTime() - start);
+                    }
+                }
+                return response;
+            } catch (IOException e) {
+                if (endpoint != null) {
+                    if (CancellableRequestFactory.isCancelled()) {
+                        // A hedged request that lost: the endpoint was slow, not down, and took at least this long
+                        endpoint.record(System.nanoTime() - start);
+                    } else {
+                        endpoint.failed();
+                    }
+                }
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Whether a response status says the endpoint itself could not serve the request, as opposed to an error in
+     * handling this particular request.
+     */
+    static boolean isUnavailable(HttpStatusCode status) {
+        return status.value() == 502 || status.value() == 503 || status.value() == 504;
+    }
+
+    private static String authority(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+
+    static final class Endpoint {
+
+        private static final double EWMA_WEIGHT = 0.2;
+        private static final int WINDOW = 128;
+        private static final int MIN_SAMPLES_FOR_HEDGING = 20;
+
+        private final URI dispatcherUri;
+        private final RestTemplate restTemplate;
+        private volatile Map<String, URI> links = Map.of();
+        private final long[] window = new long[WINDOW];
+        private long samples;
+        private double ewmaNanos;
+        private volatile boolean outOfRotation;
+        private volatile long unhealthyUntil;
+
+        private Endpoint(URI dispatcherUri, RestTemplate restTemplate) {
+            this.dispatcherUri = dispatcherUri;
+            this.restTemplate = restTemplate;
+        }
+
+        /**
+         * The link for {@code rel} advertised by this endpoint's dispatcher. The links are discovered on first use
+         * and again after the endpoint has failed, as it may have come back with a different configuration.
+         */
+        URI link(String rel) {
+            Map<String, URI> current = links;
+            if (current.isEmpty()) {
+                current = discover();
+            }
+            URI uri = current.get(rel);
+            if (uri == null) {
+                throw new RuntimeException("Link not found: " + rel);
+            }
+            return uri;
+        }
+
+        /**
+         * The link for {@code rel} if it has been discovered already, without contacting the endpoint.
+         */
+        URI discoveredLink(String rel) {
+            return links.get(rel);
+        }
+
+        /**
+         * Discovers the links unless another thread just has. The links are swapped in as one map, and dropped by
+         * {@link #failed()} by swapping in an empty one, so a reader never sees only some of them.
+         */
+        private synchronized Map<String, URI> discover() {
+            Map<String, URI> current = links;
+            if (!current.isEmpty()) {
+                return current;
+            }
+            Traverson traverson = new Traverson(dispatcherUri, MediaTypes.HAL_JSON);
+            traverson.setRestOperations(restTemplate);
+            Map<String, URI> discovered = new HashMap<>();
+            for (String rel : Arrays.asList("universities", "modules")) {
+                discovered.put(rel, URI.create(traverson.follow(rel).asLink().getHref()));
+            }
+            Map<String, URI> published = Map.copyOf(discovered);
+            links = published;
+            logger.debug("Discovered links of {}: {}", dispatcherUri, published);
+            return published;
+        }
+
+        synchronized void record(long latencyNanos) {
+            ewmaNanos = samples == 0 ? latencyNanos : EWMA_WEIGHT * latencyNanos + (1 - EWMA_WEIGHT) * ewmaNanos;
+            window[(int) (samples++ % WINDOW)] = latencyNanos;
+        }
+
+        void failed() {
+            if (isHealthy(System.nanoTime())) {
+                logger.warn("Taking {} out of rotation for {}", dispatcherUri, RETRY_AFTER);
+            }
+            unhealthyUntil = System.nanoTime() + RETRY_AFTER.toNanos();
+            outOfRotation = true;
+            links = Map.of();
+        }
+
+        boolean isHealthy(long now) {
+            return !outOfRotation || now - unhealthyUntil >= 0;
+        }
+
+        synchronized double ewmaNanos() {
+            return samples == 0 ? 0 : ewmaNanos;
+        }
+
+        /**
+         * The 95th percentile of the recent latencies, or -1 while there are too few samples to tell.
+         */
+        synchronized long p95Nanos() {
+            if (samples < MIN_SAMPLES_FOR_HEDGING) {
+                return -1;
+            }
+            long[] recent = Arrays.copyOf(window, (int) Math.min(samples, WINDOW));
+            Arrays.sort(recent);
+            return recent[(int) Math.ceil(recent.length * 0.95) - 1];
+        }
+
+        private String authority() {
+            return Endpoints.authority(dispatcherUri);
+        }
+
+        @Override
+        public String toString() {
+            return dispatcherUri.toString();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.partneruniversities.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+/**
+ * HAL-aware Jackson and {@link RestTemplate} setup shared by the clients, so {@code _embedded} content and
+ * {@code _links} are read instead of ignored.
+ */
+public final class HalClientSupport {
+
+    private HalClientSupport() {
+    }
+
+    public static ObjectMapper objectMapper() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        objectMapper.registerModule(new Jackson2HalModule());
+        objectMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        return objectMapper;
+    }
+
+    /**
+     * A {@link RestTemplate} whose JSON converter uses the HAL mapper. It takes the place of the default JSON
+     * converter, so plain strings are still read by the string converter ahead of it (Traverson relies on that).
+     */
+    public static RestTemplate restTemplate() {
+        MappingJackson2HttpMessageConverter halConverter = new MappingJackson2HttpMessageConverter(objectMapper());
+        halConverter.setSupportedMediaTypes(List.of(MediaTypes.HAL_JSON, MediaType.APPLICATION_JSON));
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getMessageConverters().replaceAll(converter ->
+                converter instanceof MappingJackson2HttpMessageConverter ? halConverter : converter);
+        return restTemplate;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.partneruniversities.client;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of requests in flight per host without blocking a thread: a request over the limit is queued
+ * and started when an earlier one to the same host completes.
+ */
+final class HostLimiter {
+
+    private final int permitsPerHost;
+    private final Executor executor;
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+    HostLimiter(int permitsPerHost, Executor executor) {
+        this.permitsPerHost = permitsPerHost;
+        this.executor = executor;
+    }
+
+    <T> CompletableFuture<T> submit(String host, Supplier<CompletableFuture<T>> request) {
+        return hosts.computeIfAbsent(host, h -> new Host()).submit(request);
+    }
+
+    private final class Host {
+
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private int inFlight;
+
+        <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            Runnable start = () -> {
+                CompletableFuture<T> started;
+                try {
+                    started = request.get();
+                } catch (RuntimeException e) {
+                    started = CompletableFuture.failedFuture(e);
+                }
+                started.whenComplete((value, failure) -> {
+                    release();
+                    if (failure != null) {
+                        result.completeExceptionally(failure);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            };
+            boolean startNow;
+            synchronized (this) {
+                startNow = inFlight < permitsPerHost;
+                if (startNow) {
+                    inFlight++;
+                } else {
+                    waiting.add(start);
+                }
+            }
+            if (startNow) {
+                start.run();
+            }
+            return result;
+        }
+
+        private void release() {
+            Runnable next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    inFlight--;
+                }
+            }
+            // The permit passes straight to the next queued request; started on the executor so a run of
+            // requests that complete immediately cannot recurse through this method
+            if (next != null) {
+                executor.execute(next);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.partneruniversities.client;
+
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.PagedModel;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walks a paged collection by following its {@code next} links, fetching ahead in the background.
+ * <p>
+ * Nothing is requested until the stream is first consumed. From then on the next page is requested as soon as the
+ * previous one arrives, until {@code maxBufferedPages} pages are waiting to be consumed; taking a page off the buffer
+ * resumes fetching. No thread is blocked by a paused fetch, so an abandoned stream holds nothing but its buffer.
+ */
+final class PageSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+    private final Function<URI, CompletableFuture<PagedModel<T>>> fetch;
+    private final int maxBufferedPages;
+    private final Deque<Collection<T>> ready = new ArrayDeque<>();
+    private Iterator<T> current = Collections.emptyIterator();
+    private URI nextUri;
+    private CompletableFuture<PagedModel<T>> inFlight;
+    private Throwable failure;
+    private boolean closed;
+
+    private PageSpliterator(URI first, Function<URI, CompletableFuture<PagedModel<T>>> fetch, int maxBufferedPages) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        if (maxBufferedPages < 1) {
+            throw new IllegalArgumentException("maxBufferedPages must be positive");
+        }
+        this.nextUri = first;
+        this.fetch = fetch;
+        this.maxBufferedPages = maxBufferedPages;
+    }
+
+    /**
+     * A sequential stream over every item of the collection at {@code first}. Closing the stream cancels the
+     * request in flight.
+     */
+    static <T> Stream<T> stream(URI first, Function<URI, CompletableFuture<PagedModel<T>>> fetch, int maxBufferedPages) {
+        PageSpliterator<T> spliterator = new PageSpliterator<>(first, fetch, maxBufferedPages);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (!current.hasNext()) {
+            Collection<T> page = nextPage();
+            if (page == null) {
+                return false;
+            }
+            current = page.iterator();
+        }
+        action.accept(current.next());
+        return true;
+    }
+
+    private synchronized Collection<T> nextPage() {
+        fetchMore();
+        while (ready.isEmpty() && failure == null && inFlight != null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the next page", e);
+            }
+        }
+        if (failure != null && ready.isEmpty()) {
+            throw failure instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new IllegalStateException("Fetching the next page failed", failure);
+        }
+        Collection<T> page = ready.poll();
+        fetchMore();
+        return page;
+    }
+
+    private synchronized void fetchMore() {
+        if (closed || inFlight != null || nextUri == null || failure != null || ready.size() >= maxBufferedPages) {
+            return;
+        }
+        URI uri = nextUri;
+        nextUri = null;
+        inFlight = fetch.apply(uri);
+        inFlight.whenComplete(this::onPage);
+    }
+
+    private synchronized void onPage(PagedModel<T> page, Throwable error) {
+        inFlight = null;
+        if (error != null) {
+            failure = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        } else if (!closed) {
+            if (!page.getContent().isEmpty()) {
+                ready.add(page.getContent());
+            }
+            nextUri = page.getLink(IanaLinkRelations.NEXT).map(link -> URI.create(link.expand().getHref())).orElse(null);
+            fetchMore();
+        }
+        notifyAll();
+    }
+
+    private synchronized void close() {
+        closed = true;
+        ready.clear();
+        if (inFlight != null) {
+            inFlight.cancel(true);
+        }
+    }
+}
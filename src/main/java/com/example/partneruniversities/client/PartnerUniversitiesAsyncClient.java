@@ -0,0 +1,310 @@
+package com.example.partneruniversities.client;
+
+import com.example.partneruniversities.model.Module;
+import com.example.partneruniversities.model.University;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Non-blocking counterpart of {@link PartnerUniversitiesClient}: every operation returns a {@link CompletableFuture}
+ * instead of waiting for the response.
+ * <p>
+ * Requests go through one shared {@link HttpClient}, which keeps connections alive and reuses them, and can
+ * negotiate HTTP/2. No thread waits on I/O: a small fixed pool completes the futures and parses the bodies, and
+ * requests over the per-host limit queue up instead of opening more connections. Errors complete the future with
+ * the same {@link HttpClientErrorException}/{@link HttpServerErrorException} the blocking client throws.
+ */
+@Component
+public class PartnerUniversitiesAsyncClient implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartnerUniversitiesAsyncClient.class);
+
+    private final ClientOptions options;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final HostLimiter hostLimiter;
+    private final ObjectMapper objectMapper;
+    private final JavaType universityType;
+    private final JavaType moduleType;
+    private final JavaType universityPageType;
+    private final JavaType modulePageType;
+    private volatile CompletableFuture<Map<String, URI>> links;
+
+    public PartnerUniversitiesAsyncClient() {
+        this(ClientOptions.defaults());
+    }
+
+    public PartnerUniversitiesAsyncClient(ClientOptions options) {
+        this.options = options;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(options.threads(), runnable -> {
+            Thread thread = new Thread(runnable, "partner-universities-client-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(options.http2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.connectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        this.hostLimiter = new HostLimiter(options.maxConnectionsPerHost(), executor);
+
+        this.objectMapper = HalClientSupport.objectMapper();
+        this.universityType = objectMapper.getTypeFactory().constructParametricType(EntityModel.class, University.class);
+        this.moduleType = objectMapper.getTypeFactory().constructParametricType(EntityModel.class, Module.class);
+        this.universityPageType = objectMapper.getTypeFactory().constructParametricType(PagedModel.class, universityType);
+        this.modulePageType = objectMapper.getTypeFactory().constructParametricType(PagedModel.class, moduleType);
+    }
+
+    public CompletableFuture<List<EntityModel<University>>> getAllUniversities() {
+        return link("universities").thenCompose(uri -> this.<PagedModel<EntityModel<University>>>get(uri, universityPageType)).thenApply(PartnerUniversitiesAsyncClient::content);
+    }
+
+    /**
+     * Every module, read {@code pageSize} at a time by following the {@code next} links of {@code GET /modules}.
+     * Each page is requested when the previous one has arrived.
+     */
+    public CompletableFuture<List<EntityModel<Module>>> getAllModules(int pageSize) {
+        return resource("modules")
+                .thenApply(uri -> UriComponentsBuilder.fromUri(uri).queryParam("size", pageSize).build().toUri())
+                .thenCompose(uri -> allPages(uri, modulePageType, new ArrayList<>()));
+    }
+
+    public CompletableFuture<List<EntityModel<Module>>> getAllModules() {
+        return getAllModules(PartnerUniversitiesClient.ALL_MODULES_PAGE_SIZE);
+    }
+
+    public CompletableFuture<List<EntityModel<University>>> searchUniversities(Map<String, String> params) {
+        return searchUri(params)
+                .thenCompose(uri -> this.<PagedModel<EntityModel<University>>>get(uri, universityPageType))
+                .thenApply(PartnerUniversitiesAsyncClient::content);
+    }
+
+    /**
+     * Every university, read lazily page by page by following the {@code next} links. While the stream is consumed,
+     * up to {@code maxBufferedPages} further pages are fetched ahead. Close the stream when abandoning it early.
+     */
+    public Stream<EntityModel<University>> streamAllUniversities(int pageSize, int maxBufferedPages) {
+        URI first = resource("universities").thenApply(uri -> UriComponentsBuilder.fromUri(uri)
+                .queryParam("size", pageSize).build().toUri()).join();
+        return PageSpliterator.stream(first, uri -> get(uri, universityPageType), maxBufferedPages);
+    }
+
+    public Stream<EntityModel<University>> streamAllUniversities() {
+        return streamAllUniversities(PartnerUniversitiesClient.DEFAULT_STREAM_PAGE_SIZE, PartnerUniversitiesClient.DEFAULT_BUFFERED_PAGES);
+    }
+
+    /**
+     * Every search result, read lazily like {@link #streamAllUniversities(int, int)}.
+     */
+    public Stream<EntityModel<University>> streamSearch(Map<String, String> params, int maxBufferedPages) {
+        return PageSpliterator.stream(searchUri(params).join(), uri -> get(uri, universityPageType), maxBufferedPages);
+    }
+
+    public Stream<EntityModel<University>> streamSearch(Map<String, String> params) {
+        return streamSearch(params, PartnerUniversitiesClient.DEFAULT_BUFFERED_PAGES);
+    }
+
+    public CompletableFuture<EntityModel<University>> getUniversityById(Long id) {
+        return resource("universities", id).thenCompose(uri -> get(uri, universityType));
+    }
+
+    public CompletableFuture<EntityModel<Module>> getModuleById(Long id) {
+        return resource("modules", id).thenCompose(uri -> get(uri, moduleType));
+    }
+
+    public CompletableFuture<List<EntityModel<Module>>> getModulesByUniversityId(Long universityId) {
+        return resource("universities", universityId, "modules").thenCompose(uri -> this.<PagedModel<EntityModel<Module>>>get(uri, modulePageType))
+                .thenApply(PartnerUniversitiesAsyncClient::content);
+    }
+
+    public CompletableFuture<EntityModel<University>> createUniversity(String universityJson) {
+        return resource("universities").thenCompose(uri -> send(uri, "POST", universityJson, universityType));
+    }
+
+    public CompletableFuture<EntityModel<University>> updateUniversity(Long id, String universityJson) {
+        return resource("universities", id)
+                .thenCompose(uri -> send(uri, "PUT", universityJson, universityType))
+                .thenCompose(updated -> getUniversityById(id));
+    }
+
+    public CompletableFuture<Void> deleteUniversity(Long id) {
+        return resource("universities", id).thenCompose(uri -> send(uri, "DELETE", null, null)).thenApply(body -> null);
+    }
+
+    public CompletableFuture<EntityModel<Module>> createModule(String moduleJson) {
+        return resource("modules").thenCompose(uri -> send(uri, "POST", moduleJson, moduleType));
+    }
+
+    public CompletableFuture<EntityModel<Module>> updateModule(Long id, String moduleJson) {
+        return resource("modules", id)
+                .thenCompose(uri -> send(uri, "PUT", moduleJson, moduleType))
+                .thenCompose(updated -> getModuleById(id));
+    }
+
+    public CompletableFuture<Void> deleteModule(Long id) {
+        return resource("modules", id).thenCompose(uri -> send(uri, "DELETE", null, null)).thenApply(body -> null);
+    }
+
+    /**
+     * Stops the threads completing the futures. Requests still in flight are abandoned.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> get(URI uri, JavaType type) {
+        return send(uri, "GET", null, type);
+    }
+
+    private <T> CompletableFuture<T> send(URI uri, String method, String json, JavaType type) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(options.requestTimeout())
+                .header(HttpHeaders.ACCEPT, MediaTypes.HAL_JSON_VALUE + ", " + MediaType.APPLICATION_JSON_VALUE);
+        if (options.gzip()) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        }
+        if (json != null) {
+            request.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .method(method, HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        logger.debug("{} {}", method, uri);
+        return hostLimiter.submit(uri.getAuthority(), () -> httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray()))
+                .thenApplyAsync(response -> read(response, type), executor);
+    }
+
+    private <T> T read(HttpResponse<byte[]> response, JavaType type) {
+        byte[] body = decode(response);
+        int status = response.statusCode();
+        if (status >= 400) {
+            HttpHeaders headers = new HttpHeaders();
+            response.headers().map().forEach(headers::addAll);
+            String statusText = HttpStatusCode.valueOf(status).toString();
+            logger.error("{} {} failed: {}", response.request().method(), response.request().uri(), new String(body, StandardCharsets.UTF_8));
+            throw status < 500
+                    ? HttpClientErrorException.create(HttpStatusCode.valueOf(status), statusText, headers, body, StandardCharsets.UTF_8)
+                    : HttpServerErrorException.create(HttpStatusCode.valueOf(status), statusText, headers, body, StandardCharsets.UTF_8);
+        }
+        if (type == null || body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] decode(HttpResponse<byte[]> response) {
+        boolean gzipped = response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        if (!gzipped) {
+            return response.body();
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The link with the given relation from the dispatcher, fetched once and shared by all later calls.
+     */
+    private CompletableFuture<URI> link(String rel) {
+        CompletableFuture<Map<String, URI>> current = links;
+        if (current == null || current.isCompletedExceptionally()) {
+            synchronized (this) {
+                if (links == null || links.isCompletedExceptionally()) {
+                    links = this.<JsonNode>get(options.dispatcherUri(), objectMapper.constructType(JsonNode.class))
+                            .thenApply(dispatcher -> Map.of(
+                                    "universities", URI.create(dispatcher.at("/_links/universities/href").asText()),
+                                    "modules", URI.create(dispatcher.at("/_links/modules/href").asText())));
+                }
+                current = links;
+            }
+        }
+        return current.thenApply(discovered -> {
+            URI uri = discovered.get(rel);
+            if (uri == null) {
+                throw new IllegalStateException("Link not found: " + rel);
+            }
+            return uri;
+        });
+    }
+
+    /**
+     * A resource below one of the dispatcher's links, without the link's default query parameters.
+     */
+    private CompletableFuture<URI> resource(String rel, Object... pathSegments) {
+        return link(rel).thenApply(uri -> {
+            UriComponentsBuilder builder = UriComponentsBuilder.fromUri(uri).replaceQuery(null);
+            for (Object segment : pathSegments) {
+                builder.pathSegment(String.valueOf(segment));
+            }
+            return builder.build().toUri();
+        });
+    }
+
+    private CompletableFuture<URI> searchUri(Map<String, String> params) {
+        return resource("universities", "search").thenApply(uri -> {
+            UriComponentsBuilder builder = UriComponentsBuilder.fromUri(uri);
+            params.forEach(builder::queryParam);
+            return builder.encode().build().toUri();
+        });
+    }
+
+    /**
+     * Adds the content of the page at {@code uri} and of every page after it to {@code collected}.
+     */
+    private <T> CompletableFuture<List<T>> allPages(URI uri, JavaType pageType, List<T> collected) {
+        return this.<PagedModel<T>>get(uri, pageType).thenCompose(page -> {
+            collected.addAll(content(page));
+            Optional<URI> next = page == null ? Optional.empty()
+                    : page.getLink(IanaLinkRelations.NEXT).map(link -> URI.create(link.expand().getHref()));
+            return next.isPresent() ? allPages(next.get(), pageType, collected) : CompletableFuture.completedFuture(collected);
+        });
+    }
+
+    private static <T> List<T> content(PagedModel<T> page) {
+        return page == null ? List.of() : new ArrayList<>(page.getContent());
+    }
+}
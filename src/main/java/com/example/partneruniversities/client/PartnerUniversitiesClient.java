@@ -2,22 +2,39 @@ package com.example.partneruniversities.client;
 
 import com.example.partneruniversities.model.Module;
 import com.example.partneruniversities.model.University;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.MediaTypes;
 import org.springframework.hateoas.PagedModel;
-import org.springframework.hateoas.client.Traverson;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Component
 public class PartnerUniversitiesClient {
@@ -25,95 +42,227 @@ public class PartnerUniversitiesClient {
     private static final Logger logger = LoggerFactory.getLogger(PartnerUniversitiesClient.class);
     private static final String DISPATCHER_URL = "http://localhost:8080/";
 
+    /** Page size requested by {@link #streamAllUniversities()}. */
+    static final int DEFAULT_STREAM_PAGE_SIZE = 100;
+    /** Page size requested by {@link #getAllModules()}, the largest {@code GET /modules} returns. */
+    static final int ALL_MODULES_PAGE_SIZE = 1000;
+    /** Pages fetched ahead of the consumer by the stream methods. */
+    static final int DEFAULT_BUFFERED_PAGES = 2;
+    /** Requests in flight at a time for the batch fetch methods. */
+    static final int DEFAULT_BATCH_CONCURRENCY = 32;
+
+    private static final ParameterizedTypeReference<PagedModel<EntityModel<University>>> UNIVERSITY_PAGE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<EntityModel<University>> UNIVERSITY =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<EntityModel<Module>> MODULE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<PagedModel<EntityModel<Module>>> MODULE_PAGE =
+            new ParameterizedTypeReference<>() {
+            };
+
     private final RestTemplate restTemplate;
-    private final Traverson traverson;
-    private final Map<String, URI> linkCache;
+    private final Endpoints endpoints;
+    private final boolean hedgeReads;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+    private final ClientResponseCache cache;
 
     public PartnerUniversitiesClient() {
-        this.restTemplate = new RestTemplate();
-        this.traverson = new Traverson(URI.create(DISPATCHER_URL), MediaTypes.HAL_JSON);
-        this.traverson.setRestOperations(restTemplate);
-        this.linkCache = new HashMap<>();
-        initializeLinks();
+        this(null);
     }
 
-    private void initializeLinks() {
-        try {
-            linkCache.put("universities", URI.create(traverson.follow("universities").asLink().getHref()));
-            linkCache.put("modules", URI.create(traverson.follow("modules").asLink().getHref()));
-        } catch (Exception e) {
-            logger.error("Error initializing links: {}", e.getMessage());
-        }
+    /**
+     * A client that answers repeated reads of the same URI from {@code cache} once the server confirms, with
+     * {@code 304 Not Modified}, that the cached representation is still current. {@code null} disables caching.
+     */
+    public PartnerUniversitiesClient(ClientResponseCache cache) {
+        this(List.of(URI.create(DISPATCHER_URL)), cache, false);
     }
 
-    private URI getLink(String rel) {
-        URI uri = linkCache.get(rel);
-        if (uri == null) {
-            throw new RuntimeException("Link not found: " + rel);
-        }
-        return uri;
+    /**
+     * A client for several replicas of the service. Reads go to the endpoint with the lowest recent latency and
+     * fail over to the next one if it cannot be reached; writes stay on one endpoint until it fails. Each
+     * endpoint's links are discovered from its own dispatcher.
+     *
+     * @param hedgeReads once an endpoint's latency is known, send a read to a second endpoint as well if the first
+     *                   has not answered within its 95th percentile latency, and use whichever answers first
+     */
+    public PartnerUniversitiesClient(List<URI> dispatcherUris, ClientResponseCache cache, boolean hedgeReads) {
+        this.cache = cache;
+        this.hedgeReads = hedgeReads;
+        this.objectMapper = HalClientSupport.objectMapper();
+        this.restTemplate = HalClientSupport.restTemplate();
+        this.restTemplate.setRequestFactory(new CancellableRequestFactory());
+        this.endpoints = new Endpoints(dispatcherUris, restTemplate);
+        this.restTemplate.getInterceptors().add(endpoints.interceptor());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "partner-universities-client-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The link for {@code rel} on the endpoint reads currently prefer, for requests that stay on one endpoint.
+     */
+    private URI readLink(String rel) {
+        return endpoints.forReads().get(0).link(rel);
+    }
+
+    private URI writeLink(String rel) {
+        return endpoints.forWrites().link(rel);
     }
 
     public List<EntityModel<University>> getAllUniversities() {
-        URI uri = getLink("universities");
-        logger.info("Fetching all universities from URL: {}", uri);
-        ResponseEntity<PagedModel<EntityModel<University>>> response = restTemplate.exchange(
-                uri,
-                org.springframework.http.HttpMethod.GET,
-                null,
-                new org.springframework.core.ParameterizedTypeReference<>() {
-                });
-        return new ArrayList<>(Objects.requireNonNull(response.getBody()).getContent());
-    }
-
-    public List<EntityModel<Module>>getAllModules() {
-        URI uri = getLink("modules");
+        logger.info("Fetching all universities");
+        PagedModel<EntityModel<University>> page = read(endpoint -> endpoint.link("universities"), UNIVERSITY_PAGE);
+        return new ArrayList<>(Objects.requireNonNull(page).getContent());
+    }
+
+    /**
+     * Every module, read {@code pageSize} at a time by following the {@code next} links of {@code GET /modules}.
+     */
+    public List<EntityModel<Module>> getAllModules(int pageSize) {
+        URI uri = UriComponentsBuilder.fromUri(readLink("modules")).replaceQuery(null).queryParam("size", pageSize).build().toUri();
         logger.info("Fetching all modules from URL: {}", uri);
-        ResponseEntity<PagedModel<EntityModel<Module>>> response = restTemplate.exchange(
-                uri,
-                org.springframework.http.HttpMethod.GET,
-                null,
-                new org.springframework.core.ParameterizedTypeReference<>() {
-                });
-        return new ArrayList<>(Objects.requireNonNull(response.getBody()).getContent());
+        try (Stream<EntityModel<Module>> modules = PageSpliterator.stream(uri, next -> fetchPage(next, MODULE_PAGE), DEFAULT_BUFFERED_PAGES)) {
+            return modules.collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    public List<EntityModel<Module>> getAllModules() {
+        return getAllModules(ALL_MODULES_PAGE_SIZE);
     }
 
     public List<EntityModel<University>> searchUniversities(Map<String, String> params) {
-        URI uri = UriComponentsBuilder.fromUri(getLink("universities")).pathSegment("search").build().toUri();
-        logger.info("Searching universities with params: {} from URL: {}", params, uri);
-        ResponseEntity<PagedModel<EntityModel<University>>> response = restTemplate.exchange(
-                uri,
-                org.springframework.http.HttpMethod.GET,
-                new HttpEntity<>(params),
-                new org.springframework.core.ParameterizedTypeReference<>() {
-                });
-        return new ArrayList<>(Objects.requireNonNull(response.getBody()).getContent());
+        logger.info("Searching universities with params: {}", params);
+        PagedModel<EntityModel<University>> page = read(endpoint -> {
+            UriComponentsBuilder builder = UriComponentsBuilder.fromUri(endpoint.link("universities")).replaceQuery(null).pathSegment("search");
+            params.forEach(builder::queryParam);
+            return builder.encode().build().toUri();
+        }, UNIVERSITY_PAGE);
+        return new ArrayList<>(Objects.requireNonNull(page).getContent());
+    }
+
+    /**
+     * Every university, read lazily page by page by following the {@code next} links. While the stream is consumed,
+     * up to {@code maxBufferedPages} further pages are fetched ahead in the background. Close the stream when
+     * abandoning it early.
+     */
+    public Stream<EntityModel<University>> streamAllUniversities(int pageSize, int maxBufferedPages) {
+        URI uri = UriComponentsBuilder.fromUri(readLink("universities")).replaceQuery(null).queryParam("size", pageSize).build().toUri();
+        logger.info("Streaming all universities from URL: {}", uri);
+        return PageSpliterator.stream(uri, next -> fetchPage(next, UNIVERSITY_PAGE), maxBufferedPages);
+    }
+
+    public Stream<EntityModel<University>> streamAllUniversities() {
+        return streamAllUniversities(DEFAULT_STREAM_PAGE_SIZE, DEFAULT_BUFFERED_PAGES);
+    }
+
+    /**
+     * Every search result, read lazily like {@link #streamAllUniversities(int, int)}.
+     */
+    public Stream<EntityModel<University>> streamSearch(Map<String, String> params, int maxBufferedPages) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUri(readLink("universities")).replaceQuery(null).pathSegment("search");
+        params.forEach(builder::queryParam);
+        URI uri = builder.encode().build().toUri();
+        logger.info("Streaming search results from URL: {}", uri);
+        return PageSpliterator.stream(uri, next -> fetchPage(next, UNIVERSITY_PAGE), maxBufferedPages);
+    }
+
+    public Stream<EntityModel<University>> streamSearch(Map<String, String> params) {
+        return streamSearch(params, DEFAULT_BUFFERED_PAGES);
+    }
+
+    private <T> CompletableFuture<PagedModel<T>> fetchPage(URI uri, ParameterizedTypeReference<PagedModel<T>> type) {
+        return CompletableFuture.supplyAsync(() -> {
+            logger.debug("Fetching page: {}", uri);
+            return restTemplate.exchange(uri, org.springframework.http.HttpMethod.GET, null, type).getBody();
+        }, executor);
     }
 
     public EntityModel<University> getUniversityById(Long id) {
-        URI uri = UriComponentsBuilder.fromUri(getLink("universities")).pathSegment("{id}").buildAndExpand(id).toUri();
-        logger.info("Fetching university with ID: {} from URL: {}", id, uri);
-        ResponseEntity<EntityModel<University>> response = restTemplate.exchange(
-                uri,
-                org.springframework.http.HttpMethod.GET,
-                null,
-                new org.springframework.core.ParameterizedTypeReference<>() {
-                });
-        return response.getBody();
+        logger.info("Fetching university with ID: {}", id);
+        return read(endpoint -> UriComponentsBuilder.fromUri(endpoint.link("universities")).pathSegment("{id}").buildAndExpand(id).toUri(), UNIVERSITY);
+    }
+
+    /**
+     * Fetches the given universities concurrently, at most {@code maxConcurrency} requests at a time. Duplicate ids
+     * are fetched once; an id that fails (for example with a 404) is reported in the result instead of aborting
+     * the batch.
+     */
+    public BatchFetchResult<University> getUniversitiesByIds(Collection<Long> ids, int maxConcurrency) {
+        return fetchAll(ids, maxConcurrency, "universities", UNIVERSITY);
+    }
+
+    public BatchFetchResult<University> getUniversitiesByIds(Collection<Long> ids) {
+        return getUniversitiesByIds(ids, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    /**
+     * Fetches the given modules concurrently, like {@link #getUniversitiesByIds(Collection, int)}.
+     */
+    public BatchFetchResult<Module> getModulesByIds(Collection<Long> ids, int maxConcurrency) {
+        return fetchAll(ids, maxConcurrency, "modules", MODULE);
+    }
+
+    public BatchFetchResult<Module> getModulesByIds(Collection<Long> ids) {
+        return getModulesByIds(ids, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    private <T> BatchFetchResult<T> fetchAll(Collection<Long> ids, int maxConcurrency, String rel,
+                                             ParameterizedTypeReference<EntityModel<T>> type) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        logger.info("Fetching {} {} by ID with {} requests in flight", ids.size(), rel, maxConcurrency);
+        Semaphore permits = new Semaphore(maxConcurrency);
+        Map<Long, CompletableFuture<EntityModel<T>>> pending = new LinkedHashMap<>();
+        try {
+            for (Long id : new LinkedHashSet<>(ids)) {
+                // Acquired here rather than on the worker so no more than maxConcurrency threads are ever started
+                permits.acquire();
+                pending.put(id, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return read(endpoint -> UriComponentsBuilder.fromUri(endpoint.link(rel)).replaceQuery(null)
+                                .pathSegment("{id}").buildAndExpand(id).toUri(), type);
+                    } finally {
+                        permits.release();
+                    }
+                }, executor));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.values().forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while fetching " + rel, e);
+        }
+
+        Map<Long, EntityModel<T>> found = new LinkedHashMap<>();
+        Map<Long, Exception> failed = new LinkedHashMap<>();
+        pending.forEach((id, future) -> {
+            try {
+                found.put(id, future.join());
+            } catch (CompletionException e) {
+                failed.put(id, e.getCause() instanceof Exception cause ? cause : e);
+            }
+        });
+        if (!failed.isEmpty()) {
+            logger.warn("Failed to fetch {} of {} {}", failed.size(), pending.size(), rel);
+        }
+        return new BatchFetchResult<>(found, failed);
     }
 
     public EntityModel<Module> getModuleById(Long id) {
-        URI uri = UriComponentsBuilder.fromUri(getLink("modules")).pathSegment("{id}").buildAndExpand(id).toUri();
-        logger.info("Fetching module with ID: {} from URL: {}", id, uri);
+        logger.info("Fetching module with ID: {}", id);
         try {
-            ResponseEntity<EntityModel<Module>> response = restTemplate.exchange(
-                    uri,
-                    org.springframework.http.HttpMethod.GET,
-                    null,
-                    new org.springframework.core.ParameterizedTypeReference<>() {
-                    });
-            logger.info("Fetched module data: {}", Objects.requireNonNull(Objects.requireNonNull(response.getBody()).getContent()));
-            return response.getBody();
+            EntityModel<Module> module = read(endpoint -> UriComponentsBuilder.fromUri(endpoint.link("modules")).pathSegment("{id}").buildAndExpand(id).toUri(), MODULE);
+            logger.info("Fetched module data: {}", Objects.requireNonNull(Objects.requireNonNull(module).getContent()));
+            return module;
         } catch (HttpClientErrorException e) {
             logger.error("Error fetching module: {}", e.getResponseBodyAsString());
             throw e;
@@ -121,7 +270,7 @@ public class PartnerUniversitiesClient {
     }
 
     public EntityModel<University> createUniversity(String universityJson) {
-        URI uri = getLink("universities");
+        URI uri = writeLink("universities");
         logger.info("Creating university at URL: {}", uri);
         logger.info("University data: {}", universityJson);
         HttpHeaders headers = new HttpHeaders();
@@ -133,6 +282,7 @@ public class PartnerUniversitiesClient {
                     new HttpEntity<>(universityJson, headers),
                     new org.springframework.core.ParameterizedTypeReference<>() {
                     });
+            invalidate("universities", null);
             return response.getBody();
         } catch (HttpClientErrorException e) {
             logger.error("Error creating university: {}", e.getResponseBodyAsString());
@@ -141,7 +291,7 @@ public class PartnerUniversitiesClient {
     }
 
     public EntityModel<University> updateUniversity(Long id, String universityJson) {
-        URI uri = UriComponentsBuilder.fromUri(getLink("universities")).pathSegment("{id}").buildAndExpand(id).toUri();
+        URI uri = UriComponentsBuilder.fromUri(writeLink("universities")).pathSegment("{id}").buildAndExpand(id).toUri();
         logger.info("Updating university with ID: {} at URL: {}", id, uri);
         logger.info("University data: {}", universityJson);
         HttpHeaders headers = new HttpHeaders();
@@ -152,6 +302,7 @@ public class PartnerUniversitiesClient {
                     org.springframework.http.HttpMethod.PUT,
                     new HttpEntity<>(universityJson, headers),
                     new org.springframework.core.ParameterizedTypeReference<EntityModel<University>>() {});
+            invalidate("universities", id);
             return getUniversityById(id);
         } catch (HttpClientErrorException e) {
             logger.error("Error updating university: {}", e.getResponseBodyAsString());
@@ -160,7 +311,7 @@ public class PartnerUniversitiesClient {
     }
 
     public void deleteUniversity(Long id) {
-        URI uri = UriComponentsBuilder.fromUri(getLink("universities")).pathSegment("{id}").buildAndExpand(id).toUri();
+        URI uri = UriComponentsBuilder.fromUri(writeLink("universities")).pathSegment("{id}").buildAndExpand(id).toUri();
         logger.info("Deleting university with ID: {} from URL: {}", id, uri);
         try {
             restTemplate.exchange(
@@ -168,6 +319,7 @@ public class PartnerUniversitiesClient {
                     org.springframework.http.HttpMethod.DELETE,
                     null,
                     Void.class);
+            invalidate("universities", id);
         } catch (HttpClientErrorException e) {
             logger.error("Error deleting university: {}", e.getResponseBodyAsString());
             throw e;
@@ -175,7 +327,7 @@ public class PartnerUniversitiesClient {
     }
 
     public EntityModel<Module> createModule(String moduleJson) {
-        URI uri = getLink("modules");
+        URI uri = writeLink("modules");
         logger.info("Creating module at URL: {}", uri);
         logger.info("Module data: {}", moduleJson);
         HttpHeaders headers = new HttpHeaders();
@@ -187,6 +339,7 @@ public class PartnerUniversitiesClient {
                     new HttpEntity<>(moduleJson, headers),
                     new org.springframework.core.ParameterizedTypeReference<>() {
                     });
+            invalidate("modules", null);
             logger.info("Created module data: {}", Objects.requireNonNull(Objects.requireNonNull(response.getBody()).getContent()));
             return response.getBody();
         } catch (HttpClientErrorException e) {
@@ -196,7 +349,7 @@ public class PartnerUniversitiesClient {
     }
 
     public EntityModel<Module> updateModule(Long id, String moduleJson) {
-        URI uri = UriComponentsBuilder.fromUri(getLink("modules")).pathSegment("{id}").buildAndExpand(id).toUri();
+        URI uri = UriComponentsBuilder.fromUri(writeLink("modules")).pathSegment("{id}").buildAndExpand(id).toUri();
         logger.info("Updating module with ID: {} at URL: {}", id, uri);
         logger.info("Module data: {}", moduleJson);
         HttpHeaders headers = new HttpHeaders();
@@ -207,6 +360,7 @@ public class PartnerUniversitiesClient {
                     org.springframework.http.HttpMethod.PUT,
                     new HttpEntity<>(moduleJson, headers),
                     new org.springframework.core.ParameterizedTypeReference<EntityModel<Module>>() {});
+            invalidate("modules", id);
             return getModuleById(id);
         } catch (HttpClientErrorException e) {
             logger.error("Error updating module: {}", e.getResponseBodyAsString());
@@ -215,7 +369,7 @@ public class PartnerUniversitiesClient {
     }
 
     public void deleteModule(Long id) {
-        URI uri = UriComponentsBuilder.fromUri(getLink("modules")).pathSegment("{id}").buildAndExpand(id).toUri();
+        URI uri = UriComponentsBuilder.fromUri(writeLink("modules")).pathSegment("{id}").buildAndExpand(id).toUri();
         logger.info("Deleting module with ID: {} from URL: {}", id, uri);
         try {
             restTemplate.exchange(
@@ -223,6 +377,7 @@ public class PartnerUniversitiesClient {
                     org.springframework.http.HttpMethod.DELETE,
                     null,
                     Void.class);
+            invalidate("modules", id);
         } catch (HttpClientErrorException e) {
             logger.error("Error deleting module: {}", e.getResponseBodyAsString());
             throw e;
@@ -230,14 +385,160 @@ public class PartnerUniversitiesClient {
     }
 
     public List<EntityModel<Module>> getModulesByUniversityId(Long universityId) {
-        URI uri = UriComponentsBuilder.fromUri(getLink("universities")).pathSegment("{universityId}", "modules").buildAndExpand(universityId).toUri();
-        logger.info("Fetching modules for university ID: {} from URL: {}", universityId, uri);
-        ResponseEntity<PagedModel<EntityModel<Module>>> response = restTemplate.exchange(
-                uri,
-                org.springframework.http.HttpMethod.GET,
-                null,
-                new org.springframework.core.ParameterizedTypeReference<>() {
-                });
-        return new ArrayList<>(Objects.requireNonNull(response.getBody()).getContent());
+        logger.info("Fetching modules for university ID: {}", universityId);
+        PagedModel<EntityModel<Module>> page = read(endpoint -> UriComponentsBuilder.fromUri(endpoint.link("universities"))
+                .pathSegment("{universityId}", "modules").buildAndExpand(universityId).toUri(), MODULE_PAGE);
+        return new ArrayList<>(Objects.requireNonNull(page).getContent());
+    }
+
+    /**
+     * GETs a resource from the preferred endpoint, hedged or failing over to the others as configured.
+     * {@code target} resolves the resource's URI from an endpoint's links.
+     */
+    private <T> T read(Function<Endpoints.Endpoint, URI> target, ParameterizedTypeReference<T> type) {
+        List<Endpoints.Endpoint> candidates = endpoints.forReads();
+        if (hedgeReads && candidates.size() > 1) {
+            long hedgeAfterNanos = candidates.get(0).p95Nanos();
+            if (hedgeAfterNanos >= 0) {
+                return hedgedRead(candidates.get(0), candidates.get(1), hedgeAfterNanos, target, type);
+            }
+        }
+        RuntimeException failure = null;
+        for (Endpoints.Endpoint endpoint : candidates) {
+            try {
+                return get(target.apply(endpoint), type);
+            } catch (RuntimeException e) {
+                if (!isEndpointFailure(e)) {
+                    throw e;
+                }
+                logger.warn("Reading from {} failed: {}", endpoint, e.getMessage());
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Sends the read to {@code primary} and, if no answer has arrived after {@code hedgeAfterNanos} (or the primary
+     * cannot be reached), to {@code backup} as well. The first answer wins and the slower request is cancelled, so it
+     * holds neither a thread nor a connection; its elapsed time still feeds the latency statistics.
+     */
+    private <T> T hedgedRead(Endpoints.Endpoint primary, Endpoints.Endpoint backup, long hedgeAfterNanos,
+                             Function<Endpoints.Endpoint, URI> target, ParameterizedTypeReference<T> type) {
+        CancellableRequestFactory.Handle firstHandle = new CancellableRequestFactory.Handle();
+        CompletableFuture<T> first = CompletableFuture.supplyAsync(
+                () -> CancellableRequestFactory.call(firstHandle, () -> get(target.apply(primary), type)), executor);
+        try {
+            return first.get(hedgeAfterNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            logger.debug("No answer from {} within {} ms, hedging to {}", primary, hedgeAfterNanos / 1_000_000, backup);
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof RuntimeException cause) || !isEndpointFailure(cause)) {
+                throw rethrow(e.getCause());
+            }
+            logger.warn("Reading from {} failed: {}", primary, cause.getMessage());
+            return get(target.apply(backup), type);
+        } catch (InterruptedException e) {
+            firstHandle.cancel();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading from " + primary, e);
+        }
+        CancellableRequestFactory.Handle secondHandle = new CancellableRequestFactory.Handle();
+        CompletableFuture<T> second = CompletableFuture.supplyAsync(
+                () -> CancellableRequestFactory.call(secondHandle, () -> get(target.apply(backup), type)), executor);
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> attempt : List.of(first, second)) {
+            attempt.whenComplete((value, failure) -> {
+                if (failure == null) {
+                    winner.complete(value);
+                } else if (!isEndpointFailure(failure.getCause()) || failures.incrementAndGet() == 2) {
+                    winner.completeExceptionally(failure.getCause());
+                }
+            });
+        }
+        try {
+            return winner.join();
+        } catch (CompletionException e) {
+            throw rethrow(e.getCause());
+        } finally {
+            // Whichever attempt is still running lost; a finished one is left alone
+            firstHandle.cancel();
+            secondHandle.cancel();
+        }
+    }
+
+    /**
+     * Whether {@code failure} means the endpoint could not serve the request at all, so another endpoint may.
+     */
+    private static boolean isEndpointFailure(Throwable failure) {
+        return failure instanceof ResourceAccessException
+                || failure instanceof HttpServerErrorException serverError && Endpoints.isUnavailable(serverError.getStatusCode());
+    }
+
+    private static RuntimeException rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(failure);
+    }
+
+    /**
+     * GETs {@code uri}, through the cache when one is configured: a cached representation is revalidated with its
+     * validators and reused when the server answers {@code 304 Not Modified}.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T get(URI uri, ParameterizedTypeReference<T> type) {
+        if (cache == null) {
+            return restTemplate.exchange(uri, org.springframework.http.HttpMethod.GET, null, type).getBody();
+        }
+        ClientResponseCache.Entry cached = cache.get(uri);
+        return restTemplate.execute(uri, org.springframework.http.HttpMethod.GET, request -> {
+            request.getHeaders().setAccept(List.of(MediaTypes.HAL_JSON, org.springframework.http.MediaType.APPLICATION_JSON));
+            if (cached != null && cached.etag() != null) {
+                request.getHeaders().setIfNoneMatch(cached.etag());
+            } else if (cached != null) {
+                request.getHeaders().set(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified());
+            }
+        }, response -> {
+            if (cached != null && response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                cache.recordHit(uri, cached.bytes());
+                return (T) cached.body();
+            }
+            byte[] body = StreamUtils.copyToByteArray(response.getBody());
+            T value = objectMapper.readValue(body, objectMapper.getTypeFactory().constructType(type.getType()));
+            cache.recordMiss(uri, body.length);
+            String etag = response.getHeaders().getETag();
+            String lastModified = response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED);
+            if (etag != null || lastModified != null) {
+                cache.put(uri, new ClientResponseCache.Entry(value, etag, lastModified, body.length));
+            }
+            return value;
+        });
+    }
+
+    /**
+     * Drops the cache entries a successful write made stale on every endpoint: the written resource (with
+     * everything below it) and the listings of its collection. Entries missed here are still caught by revalidation.
+     */
+    private void invalidate(String rel, Long id) {
+        if (cache == null) {
+            return;
+        }
+        for (Endpoints.Endpoint endpoint : endpoints.all()) {
+            URI link = endpoint.discoveredLink(rel);
+            if (link == null) {
+                continue;
+            }
+            URI collection = UriComponentsBuilder.fromUri(link).replaceQuery(null).build().toUri();
+            if (id != null) {
+                cache.invalidate(UriComponentsBuilder.fromUri(collection).pathSegment("{id}").buildAndExpand(id).toUri());
+            }
+            cache.invalidate(collection, false);
+            cache.invalidate(UriComponentsBuilder.fromUri(collection).pathSegment("search").build().toUri(), false);
+        }
     }
 }
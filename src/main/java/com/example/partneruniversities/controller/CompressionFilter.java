@@ -0,0 +1,403 @@
+package com.example.partneruniversities.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses responses with gzip for clients that accept it. This replaces Tomcat's compression, which skips every
+ * response with a strong ETag. A compressed response is a different representation, so its ETag gets a
+ * {@value #ETAG_SUFFIX} suffix. The suffix is stripped from {@code If-None-Match} before the controllers and the
+ * response cache compare the tags with their own.
+ * <p>
+ * Runs outside the response cache and request coalescing, which therefore store and share uncompressed responses.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 2)
+public class CompressionFilter extends OncePerRequestFilter {
+
+    static final String ETAG_SUFFIX = "-gzip";
+
+    /** Responses known to be smaller than this are sent uncompressed. */
+    static final int MIN_RESPONSE_SIZE = 2048;
+
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, "application/hal+json", ExportController.TEXT_CSV_VALUE);
+
+    private final boolean enabled;
+
+    public CompressionFilter(@Value("${partner-universities.compression.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !acceptsGzip(request.getHeaders(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        boolean revalidatesCompressed = ifNoneMatch != null && ifNoneMatch.contains(ETAG_SUFFIX + "\"");
+        GzipResponse gzipResponse = new GzipResponse(response, revalidatesCompressed);
+        try {
+            filterChain.doFilter(new UncompressedTagsRequest(request), gzipResponse);
+        } finally {
+            gzipResponse.finish();
+        }
+    }
+
+    private static boolean acceptsGzip(Enumeration<String> acceptEncodings) {
+        for (String header : Collections.list(acceptEncodings)) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.trim().split(";");
+                if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                    return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Presents the tags of {@code If-None-Match} without the suffix of the compressed representation.
+     */
+    private static final class UncompressedTagsRequest extends HttpServletRequestWrapper {
+
+        UncompressedTagsRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            String value = super.getHeader(name);
+            return value != null && HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name) ? uncompressed(value) : value;
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (!HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name)) {
+                return super.getHeaders(name);
+            }
+            List<String> values = Collections.list(super.getHeaders(name)).stream().map(UncompressedTagsRequest::uncompressed).toList();
+            return Collections.enumeration(values);
+        }
+
+        private static String uncompressed(String tags) {
+            return tags.replace(ETAG_SUFFIX + "\"", "\"");
+        }
+    }
+
+    /**
+     * Holds back the ETag and content length until the first byte of the body is written, when the content type and
+     * status are known and it is decided whether to compress. Wrappers such as {@code ContentCachingResponseWrapper}
+     * ask for the output stream long before they write to it, so asking does not decide anything.
+     */
+    private static final class GzipResponse extends HttpServletResponseWrapper {
+
+        private final boolean revalidatesCompressed;
+        private String etag;
+        private long contentLength = -1;
+        private boolean decided;
+        private ServletOutputStream target;
+        private GzipOutputStream gzipStream;
+        private BodyOutputStream bodyStream;
+        private PrintWriter writer;
+
+        GzipResponse(HttpServletResponse response, boolean revalidatesCompressed) {
+            super(response);
+            this.revalidatesCompressed = revalidatesCompressed;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.ETAG.equalsIgnoreCase(name) && !decided) {
+                etag = value;
+            } else if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && value != null) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.ETAG.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setHeader(name, value);
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return HttpHeaders.ETAG.equalsIgnoreCase(name) && !decided ? etag : super.getHeader(name);
+        }
+
+        @Override
+        public Collection<String> getHeaders(String name) {
+            if (HttpHeaders.ETAG.equalsIgnoreCase(name) && !decided) {
+                return etag != null ? List.of(etag) : List.of();
+            }
+            return super.getHeaders(name);
+        }
+
+        @Override
+        public Collection<String> getHeaderNames() {
+            if (etag == null || decided) {
+                return super.getHeaderNames();
+            }
+            Set<String> names = new LinkedHashSet<>(super.getHeaderNames());
+            names.add(HttpHeaders.ETAG);
+            return names;
+        }
+
+        @Override
+        public boolean containsHeader(String name) {
+            return HttpHeaders.ETAG.equalsIgnoreCase(name) && !decided ? etag != null : super.containsHeader(name);
+        }
+
+        @Override
+        public void setContentLength(int length) {
+            setContentLengthLong(length);
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            if (!decided) {
+                contentLength = length;
+            } else if (gzipStream == null) {
+                super.setContentLengthLong(length);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (bodyStream == null) {
+                bodyStream = new BodyOutputStream(this, super.getOutputStream());
+            }
+            return bodyStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), Charset.forName(getCharacterEncoding())));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            } else if (bodyStream != null) {
+                bodyStream.flush();
+            }
+            super.flushBuffer();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (!decided) {
+                etag = null;
+                contentLength = -1;
+            }
+        }
+
+        /**
+         * Writes the held back headers of a response without a body, and the end of a compressed one.
+         */
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            decide(false);
+            if (gzipStream != null) {
+                gzipStream.finish();
+            }
+        }
+
+        /**
+         * The stream the body goes to, decided on its first byte.
+         */
+        private ServletOutputStream target() throws IOException {
+            decide(true);
+            return gzipStream != null ? gzipStream : target;
+        }
+
+        private void decide(boolean hasBody) throws IOException {
+            if (decided) {
+                return;
+            }
+            decided = true;
+            boolean compress = hasBody && compressible();
+            if (compress) {
+                super.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                gzipStream = new GzipOutputStream(super.getOutputStream());
+            } else if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+            if (hasBody) {
+                target = super.getOutputStream();
+            }
+            if (etag != null && !isCommitted()) {
+                // A 304 answers for the representation the client holds
+                boolean compressedTag = compress || (getStatus() == HttpServletResponse.SC_NOT_MODIFIED && revalidatesCompressed);
+                super.setHeader(HttpHeaders.ETAG, compressedTag ? compressed(etag) : etag);
+            }
+        }
+
+        private boolean compressible() {
+            int status = getStatus();
+            if (isCommitted() || status < 200 || status >= 300 || status == HttpServletResponse.SC_NO_CONTENT
+                    || (contentLength >= 0 && contentLength < MIN_RESPONSE_SIZE)
+                    || super.getHeader(HttpHeaders.CONTENT_ENCODING) != null) {
+                return false;
+            }
+            String contentType = getContentType();
+            if (contentType == null) {
+                return false;
+            }
+            int parameters = contentType.indexOf(';');
+            return COMPRESSIBLE_TYPES.contains((parameters < 0 ? contentType : contentType.substring(0, parameters)).trim().toLowerCase());
+        }
+
+        private static String compressed(String etag) {
+            return etag.endsWith("\"") ? etag.substring(0, etag.length() - 1) + ETAG_SUFFIX + "\"" : etag;
+        }
+    }
+
+    /**
+     * The stream handed out for the body, which passes everything on to the stream chosen when the first byte is
+     * written. Flushing an empty body decides nothing, so the headers may still change.
+     */
+    private static final class BodyOutputStream extends ServletOutputStream {
+
+        private final GzipResponse response;
+        private final ServletOutputStream servletStream;
+        private boolean written;
+
+        BodyOutputStream(GzipResponse response, ServletOutputStream servletStream) {
+            this.response = response;
+            this.servletStream = servletStream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            written = true;
+            response.target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            written = true;
+            response.target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (written) {
+                response.target().flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (written) {
+                response.target().close();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return servletStream.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            servletStream.setWriteListener(writeListener);
+        }
+    }
+
+    private static final class GzipOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream target;
+        private final GZIPOutputStream gzip;
+        private boolean closed;
+
+        GzipOutputStream(ServletOutputStream target) throws IOException {
+            this.target = target;
+            // Sync flush, so each flush of a stream sends everything written so far
+            this.gzip = new GZIPOutputStream(target, 8192, true);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            gzip.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            gzip.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            gzip.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            gzip.close();
+        }
+
+        void finish() throws IOException {
+            if (!closed) {
+                gzip.finish();
+                target.flush();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            target.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.partneruniversities.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.TreeMap;
+
+/**
+ * ETags for the GET endpoints, computed from entity versions before anything is loaded or assembled. The
+ * {@link CompressionFilter} gives the tag of a compressed response a suffix of its own.
+ */
+final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    static String etag(String resource, Object... parts) {
+        StringBuilder etag = new StringBuilder("\"").append(resource);
+        for (Object part : parts) {
+            etag.append('-').append(part);
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * Sets the ETag on the current response and returns true if the request's {@code If-None-Match} matches it,
+     * in which case the response status has already been set to 304.
+     */
+    static boolean notModified(String etag) {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        return new ServletWebRequest(attributes.getRequest(), attributes.getResponse()).checkNotModified(etag);
+    }
+
+    /**
+     * {@link #notModified} for a collection tagged with {@code version}. The tag also covers the representation
+     * ({@code variant}, such as a HAL page or an NDJSON stream) and the query parameters, which select the page,
+     * its size, sort and filters. The response is marked as varying by {@code Accept}, which picks the variant.
+     */
+    static boolean collectionNotModified(String resource, String variant, Object version) {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        attributes.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return notModified(etag(resource, variant, version, parametersDigest(attributes.getRequest())));
+    }
+
+    private static String parametersDigest(HttpServletRequest request) {
+        StringBuilder parameters = new StringBuilder();
+        new TreeMap<>(request.getParameterMap()).forEach((name, values) -> {
+            for (String value : values) {
+                parameters.append(UriUtils.encodeQueryParam(name, StandardCharsets.UTF_8)).append('=')
+                        .append(UriUtils.encodeQueryParam(value, StandardCharsets.UTF_8)).append('&');
+            }
+        });
+        return DigestUtils.md5DigestAsHex(parameters.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.partneruniversities.controller;
+
+import com.example.partneruniversities.service.UniversityExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Full-catalog export for bulk consumers: every university with its modules, as NDJSON or CSV depending on the
+ * {@code Accept} header, gzip-compressed for clients that accept it. The response is written on the request thread
+ * while the rows are read, so an export holds a request thread and a database connection until it has been sent.
+ * <p>
+ * A download that broke off is resumed after the last complete university with {@code afterId}, or with the
+ * {@code Range: id=<first id>-} header, which is answered with {@code 206 Partial Content}.
+ */
+@RestController
+@RequestMapping("/export")
+public class ExportController {
+
+    static final String TEXT_CSV_VALUE = "text/csv";
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+    private static final String RANGE_UNIT = "id";
+    private static final Pattern ID_RANGE = Pattern.compile("^id=(\\d{1,18})-$");
+
+    private final UniversityExportService exportService;
+
+    public ExportController(UniversityExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    public void export(@RequestParam(defaultValue = "0") long afterId,
+                       @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                       @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                       HttpServletResponse response) throws IOException {
+        if (afterId < 0) {
+            throw new ResponseStatusException(BAD_REQUEST, "afterId must not be negative");
+        }
+        UniversityExportService.Format format = format(accept);
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, RANGE_UNIT);
+        // Ranges in other units, such as bytes, are ignored and the whole export is sent
+        Matcher idRange = range == null ? null : ID_RANGE.matcher(range.trim());
+        if (idRange != null && idRange.matches()) {
+            long firstId = Long.parseLong(idRange.group(1));
+            afterId = Math.max(afterId, firstId - 1);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, RANGE_UNIT + " " + firstId + "-");
+        }
+        response.setContentType(format == UniversityExportService.Format.CSV
+                ? TEXT_CSV_VALUE + ";charset=UTF-8"
+                : MediaType.APPLICATION_NDJSON_VALUE);
+        exportService.export(format, afterId, response.getOutputStream());
+    }
+
+    /**
+     * CSV if it is the first of the two formats the {@code Accept} header names or matches, NDJSON otherwise.
+     */
+    private static UniversityExportService.Format format(String accept) {
+        if (accept != null) {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (type.includes(MediaType.APPLICATION_NDJSON)) {
+                    return UniversityExportService.Format.NDJSON;
+                }
+                if (type.includes(TEXT_CSV)) {
+                    return UniversityExportService.Format.CSV;
+                }
+            }
+        }
+        return UniversityExportService.Format.NDJSON;
+    }
+}
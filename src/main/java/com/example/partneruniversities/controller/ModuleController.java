@@ -1,9 +1,18 @@
 package com.example.partneruniversities.controller;
 
+import com.example.partneruniversities.assembler.ModuleBatchModel;
+import com.example.partneruniversities.assembler.ModuleModelAssembler;
+import com.example.partneruniversities.assembler.NdjsonWriter;
+import com.example.partneruniversities.cache.ResponseCache;
 import com.example.partneruniversities.model.Module;
 import com.example.partneruniversities.repository.ModuleRepository;
 import com.example.partneruniversities.repository.UniversityRepository;
+import com.example.partneruniversities.service.ModuleBatchResult;
+import com.example.partneruniversities.service.ModuleService;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Slice;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.http.HttpHeaders;
@@ -12,47 +21,104 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 
 @RestController
 @RequestMapping("/modules")
 public class ModuleController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final ModuleRepository moduleRepository;
     private final UniversityRepository universityRepository;
-
-    public ModuleController(ModuleRepository moduleRepository, UniversityRepository universityRepository) {
+    private final ModuleService moduleService;
+    private final NdjsonWriter ndjsonWriter;
+    private final ResponseCache responseCache;
+    private final ModuleModelAssembler assembler;
+
+    public ModuleController(ModuleRepository moduleRepository, UniversityRepository universityRepository,
+                            ModuleService moduleService, NdjsonWriter ndjsonWriter, ResponseCache responseCache,
+                            ModuleModelAssembler assembler) {
         this.moduleRepository = moduleRepository;
         this.universityRepository = universityRepository;
+        this.moduleService = moduleService;
+        this.ndjsonWriter = ndjsonWriter;
+        this.responseCache = responseCache;
+        this.assembler = assembler;
     }
 
     @GetMapping
-    public ResponseEntity<CollectionModel<EntityModel<Module>>> getAllModules() {
-        List<EntityModel<Module>> modules = moduleRepository.findAll().stream()
-                .map(module -> EntityModel.of(module,
-                        linkTo(methodOn(ModuleController.class).getModuleById(module.getId())).withSelfRel(),
-                        linkTo(methodOn(ModuleController.class).getAllModules()).withRel("modules")))
+    public ResponseEntity<CollectionModel<EntityModel<Module>>> getAllModules(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer size) {
+
+        if (ConditionalRequests.collectionNotModified("modules", "hal", moduleService.aggregateVersion())) {
+            return ResponseEntity.status(NOT_MODIFIED).build();
+        }
+
+        long cursor = after != null ? after : 0L;
+        int pageSize = size != null ? Math.min(Math.max(size, 1), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        Slice<Module> moduleSlice = moduleService.findAfter(cursor, pageSize);
+
+        List<EntityModel<Module>> modules = moduleSlice.stream()
+                .map(assembler::toModel)
                 .collect(Collectors.toList());
 
         HttpHeaders headers = new HttpHeaders();
-        headers.add("self", linkTo(methodOn(ModuleController.class).getAllModules()).withSelfRel().getHref());
+        headers.add("self", linkTo(methodOn(ModuleController.class).getAllModules(after, size)).withSelfRel().expand().getHref());
 
-        CollectionModel<EntityModel<Module>> collectionModel = CollectionModel.of(modules, linkTo(methodOn(ModuleController.class).getAllModules()).withSelfRel());
+        CollectionModel<EntityModel<Module>> collectionModel = CollectionModel.of(modules, linkTo(methodOn(ModuleController.class).getAllModules(after, size)).withSelfRel().expand());
+        if (moduleSlice.hasNext()) {
+            Long lastId = moduleSlice.getContent().get(moduleSlice.getNumberOfElements() - 1).getId();
+            collectionModel.add(linkTo(methodOn(ModuleController.class).getAllModules(lastId, pageSize)).withRel("next"));
+        }
         return ResponseEntity.ok().headers(headers).body(collectionModel);
     }
 
+    /**
+     * Streams every module after the optional cursor as newline-delimited HAL documents.
+     * Rows are read through a forward-only cursor and written as they arrive.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamModules(@RequestParam(required = false) Long after, HttpServletResponse response) throws IOException {
+        if (ConditionalRequests.collectionNotModified("modules", "ndjson", moduleService.aggregateVersion())) {
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (SequenceWriter writer = ndjsonWriter.open(response.getOutputStream())) {
+            moduleService.forEachAfter(after != null ? after : 0L, module -> {
+                try {
+                    writer.write(assembler.toModel(module));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<EntityModel<Module>> getModuleById(@PathVariable Long id) {
+        long version = moduleService.findVersion(id)
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Module not found"));
+        if (ConditionalRequests.notModified(ConditionalRequests.etag("module", id, version))) {
+            return ResponseEntity.status(NOT_MODIFIED).build();
+        }
+
         Module module = moduleRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Module not found"));
 
-        EntityModel<Module> entityModel = EntityModel.of(module,
-                linkTo(methodOn(ModuleController.class).getModuleById(id)).withSelfRel(),
-                linkTo(methodOn(ModuleController.class).getAllModules()).withRel("modules"));
+        EntityModel<Module> entityModel = assembler.toModel(module);
 
         return ResponseEntity.ok().body(entityModel);
     }
@@ -61,24 +127,53 @@ public class ModuleController {
     public ResponseEntity<EntityModel<Module>> createModule(@Valid @RequestBody Module module) {
         if (module.getUniversity() == null || !universityRepository.existsById(module.getUniversity().getId())) {
             return ResponseEntity.badRequest().body(EntityModel.of(module,
-                    linkTo(methodOn(ModuleController.class).getAllModules()).withRel("modules")));
+                    linkTo(ModuleController.class).withRel("modules")));
         }
         Module savedModule = moduleRepository.save(module);
-        EntityModel<Module> entityModel = EntityModel.of(savedModule,
-                linkTo(methodOn(ModuleController.class).getModuleById(savedModule.getId())).withSelfRel(),
-                linkTo(methodOn(ModuleController.class).getAllModules()).withRel("modules"));
+        touchUniversity(savedModule.getUniversity().getId());
+        EntityModel<Module> entityModel = assembler.toModel(savedModule);
 
         return ResponseEntity.created(entityModel.getRequiredLink("self").toUri()).body(entityModel);
     }
 
+    /**
+     * Creates an array of modules in one transaction. In {@code atomic} mode (the default) any invalid module
+     * rejects the whole batch with 400; in {@code best-effort} mode the valid modules are created and the
+     * invalid ones are listed by their index in the request.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ModuleBatchModel> createModules(@RequestBody List<Module> modules,
+                                                          @RequestParam(defaultValue = "atomic") String mode) {
+        boolean atomic = switch (mode) {
+            case "atomic" -> true;
+            case "best-effort" -> false;
+            default -> throw new ResponseStatusException(BAD_REQUEST, "Unknown mode: " + mode);
+        };
+        ModuleBatchResult result = moduleService.createAll(modules, atomic);
+        result.created().stream()
+                .map(module -> module.getUniversity().getId())
+                .distinct()
+                .forEach(universityId -> responseCache.invalidate(ResponseCache.UNIVERSITIES, universityId));
+
+        ModuleBatchModel body = new ModuleBatchModel(
+                result.created().stream().map(assembler::toModel).collect(Collectors.toList()),
+                result.rejected());
+        body.add(linkTo(ModuleController.class).withRel("modules"));
+        return result.created().isEmpty()
+                ? ResponseEntity.badRequest().body(body)
+                : ResponseEntity.status(CREATED).body(body);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<EntityModel<Module>> updateModule(@PathVariable Long id, @Valid @RequestBody Module moduleDetails) {
         if (moduleDetails.getUniversity() == null || !universityRepository.existsById(moduleDetails.getUniversity().getId())) {
             return ResponseEntity.badRequest().body(EntityModel.of(moduleDetails,
-                    linkTo(methodOn(ModuleController.class).getAllModules()).withRel("modules")));
+                    linkTo(ModuleController.class).withRel("modules")));
         }
 
-        Module updatedModule = moduleRepository.findById(id)
+        Optional<Module> existingModule = moduleRepository.findById(id);
+        Long previousUniversityId = existingModule.map(module -> module.getUniversity().getId()).orElse(null);
+        Module updatedModule = existingModule
                 .map(module -> {
                     module.setName(moduleDetails.getName());
                     module.setSemester(moduleDetails.getSemester());
@@ -90,17 +185,34 @@ public class ModuleController {
                     moduleDetails.setId(id);
                     return moduleRepository.save(moduleDetails);
                 });
+        responseCache.invalidate(ResponseCache.MODULES, updatedModule.getId());
+        touchUniversity(previousUniversityId);
+        if (!updatedModule.getUniversity().getId().equals(previousUniversityId)) {
+            touchUniversity(updatedModule.getUniversity().getId());
+        }
 
-        EntityModel<Module> entityModel = EntityModel.of(updatedModule,
-                linkTo(methodOn(ModuleController.class).getModuleById(updatedModule.getId())).withSelfRel(),
-                linkTo(methodOn(ModuleController.class).getAllModules()).withRel("modules"));
+        EntityModel<Module> entityModel = assembler.toModel(updatedModule);
 
         return ResponseEntity.ok().body(entityModel);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteModule(@PathVariable Long id) {
+        Long universityId = moduleRepository.findById(id).map(module -> module.getUniversity().getId()).orElse(null);
         moduleRepository.deleteById(id);
+        responseCache.invalidate(ResponseCache.MODULES, id);
+        touchUniversity(universityId);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * A university's representation embeds its modules, so a module write is also a new version of the university.
+     */
+    private void touchUniversity(Long universityId) {
+        if (universityId == null) {
+            return;
+        }
+        universityRepository.incrementVersion(universityId);
+        responseCache.invalidate(ResponseCache.UNIVERSITIES, universityId);
+    }
 }
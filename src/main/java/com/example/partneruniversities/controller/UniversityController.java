@@ -1,27 +1,40 @@
 package com.example.partneruniversities.controller;
 
+import com.example.partneruniversities.assembler.LinkTemplates;
 import com.example.partneruniversities.assembler.UniversityModelAssembler;
 import com.example.partneruniversities.model.Module;
 import com.example.partneruniversities.model.University;
+import com.example.partneruniversities.repository.SemesterStartRange;
+import com.example.partneruniversities.service.BulkDeleteReport;
+import com.example.partneruniversities.service.BulkImportReport;
+import com.example.partneruniversities.service.CursorSlice;
 import com.example.partneruniversities.service.ModuleService;
+import com.example.partneruniversities.service.UniversityImportService;
 import com.example.partneruniversities.service.UniversityService;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 /**
  * REST controller for managing University entities.
@@ -31,46 +44,72 @@ import static org.springframework.http.HttpStatus.NOT_FOUND;
 @RequestMapping("/universities")
 public class UniversityController {
 
+    static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final UniversityService universityService;
     private final ModuleService moduleService;
     private final UniversityModelAssembler assembler;
+    private final UniversityImportService importService;
+    private final LinkTemplates linkTemplates;
 
-    public UniversityController(UniversityService universityService, ModuleService moduleService, UniversityModelAssembler assembler) {
+    public UniversityController(UniversityService universityService, ModuleService moduleService, UniversityModelAssembler assembler,
+                                UniversityImportService importService, LinkTemplates linkTemplates) {
         this.universityService = universityService;
         this.moduleService = moduleService;
         this.assembler = assembler;
+        this.importService = importService;
+        this.linkTemplates = linkTemplates;
     }
 
     @GetMapping
     public ResponseEntity<CollectionModel<EntityModel<University>>> getAllUniversities(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "5") int size) {
+            @RequestParam(defaultValue = "5") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean includeModules) {
+
+        if (ConditionalRequests.collectionNotModified("universities", "hal", universityService.aggregateVersion())) {
+            return ResponseEntity.status(NOT_MODIFIED).build();
+        }
 
-        Pageable pageable = PageRequest.of(page, size);
-        Page<University> universityPage = universityService.findAll(pageable);
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        CursorSlice<University> universitySlice;
+        try {
+            universitySlice = universityService.findAll(page, pageSize, cursor, !Boolean.FALSE.equals(includeModules));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage());
+        }
 
-        List<EntityModel<University>> universities = universityPage.stream()
+        List<EntityModel<University>> universities = universitySlice.content().stream()
                 .map(assembler::toModel)
                 .collect(Collectors.toList());
 
         CollectionModel<EntityModel<University>> collectionModel = CollectionModel.of(universities,
-                linkTo(methodOn(UniversityController.class).getAllUniversities(page, size)).withSelfRel());
+                linkTo(methodOn(UniversityController.class).getAllUniversities(page, size, cursor, includeModules)).withSelfRel().expand());
 
-        if (universityPage.hasNext()) {
-            collectionModel.add(linkTo(methodOn(UniversityController.class).getAllUniversities(page + 1, size)).withRel("next"));
+        if (universitySlice.nextCursor() != null) {
+            collectionModel.add(linkTo(methodOn(UniversityController.class).getAllUniversities(0, pageSize, universitySlice.nextCursor(), includeModules)).withRel("next").expand());
         }
-        if (universityPage.hasPrevious()) {
-            collectionModel.add(linkTo(methodOn(UniversityController.class).getAllUniversities(page - 1, size)).withRel("prev"));
+        if (universitySlice.prevCursor() != null) {
+            collectionModel.add(linkTo(methodOn(UniversityController.class).getAllUniversities(0, pageSize, universitySlice.prevCursor(), includeModules)).withRel("prev").expand());
         }
 
         HttpHeaders headers = new HttpHeaders();
-        headers.add("search", linkTo(methodOn(UniversityController.class).searchUniversities("", "", "", page, size, "name", "asc")).withRel("search").getHref());
+        headers.add("search", linkTo(methodOn(UniversityController.class).searchUniversities("", "", "", null, null, null, null, page, pageSize, "name", "asc", null, null)).withRel("search").expand().getHref());
 
         return ResponseEntity.ok().headers(headers).body(collectionModel);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<EntityModel<University>> getUniversityById(@PathVariable Long id) {
+        long version = universityService.findVersion(id)
+                .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "University not found"));
+        if (ConditionalRequests.notModified(ConditionalRequests.etag("university", id, version))) {
+            return ResponseEntity.status(NOT_MODIFIED).build();
+        }
+
         University university = universityService.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "University not found"));
 
@@ -93,28 +132,56 @@ public class UniversityController {
             @RequestParam(defaultValue = "") String name,
             @RequestParam(defaultValue = "") String country,
             @RequestParam(defaultValue = "") String departmentName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate springStartFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate springStartTo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate autumnStartFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate autumnStartTo,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "name") String sortBy,
-            @RequestParam(defaultValue = "asc") String direction) {
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean includeModules) {
 
-        Page<University> universityPage = universityService.searchUniversities(name, country, departmentName, page, size, sortBy, direction);
-        List<EntityModel<University>> universities = universityPage.stream()
+        if (ConditionalRequests.collectionNotModified("university-search", "hal", universityService.aggregateVersion())) {
+            return ResponseEntity.status(NOT_MODIFIED).build();
+        }
+
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        CursorSlice<University> universitySlice;
+        try {
+            SemesterStartRange semesterStarts = new SemesterStartRange(springStartFrom, springStartTo, autumnStartFrom, autumnStartTo);
+            universitySlice = universityService.searchUniversities(name, country, departmentName, semesterStarts, page, pageSize, sortBy, direction, cursor, !Boolean.FALSE.equals(includeModules));
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(SERVICE_UNAVAILABLE, e.getMessage());
+        }
+        List<EntityModel<University>> universities = universitySlice.content().stream()
                 .map(assembler::toModel)
                 .collect(Collectors.toList());
 
         HttpHeaders headers = new HttpHeaders();
-        headers.add("self", linkTo(methodOn(UniversityController.class).searchUniversities(name, country, departmentName, page, size, sortBy, direction)).withSelfRel().getHref());
+        headers.add("self", linkTo(methodOn(UniversityController.class).searchUniversities(name, country, departmentName, springStartFrom, springStartTo, autumnStartFrom, autumnStartTo, page, size, sortBy, direction, cursor, includeModules)).withSelfRel().expand().getHref());
 
-        CollectionModel<EntityModel<University>> collectionModel = CollectionModel.of(universities, linkTo(methodOn(UniversityController.class).searchUniversities(name, country, departmentName, page, size, sortBy, direction)).withSelfRel());
+        CollectionModel<EntityModel<University>> collectionModel = CollectionModel.of(universities, linkTo(methodOn(UniversityController.class).searchUniversities(name, country, departmentName, springStartFrom, springStartTo, autumnStartFrom, autumnStartTo, page, size, sortBy, direction, cursor, includeModules)).withSelfRel().expand());
+        if (universitySlice.nextCursor() != null) {
+            collectionModel.add(linkTo(methodOn(UniversityController.class).searchUniversities(name, country, departmentName, springStartFrom, springStartTo, autumnStartFrom, autumnStartTo, 0, pageSize, sortBy, direction, universitySlice.nextCursor(), includeModules)).withRel("next").expand());
+        }
+        if (universitySlice.prevCursor() != null) {
+            collectionModel.add(linkTo(methodOn(UniversityController.class).searchUniversities(name, country, departmentName, springStartFrom, springStartTo, autumnStartFrom, autumnStartTo, 0, pageSize, sortBy, direction, universitySlice.prevCursor(), includeModules)).withRel("prev").expand());
+        }
         return ResponseEntity.ok().headers(headers).body(collectionModel);
     }
 
     @GetMapping("/{universityId}/modules")
     public ResponseEntity<CollectionModel<EntityModel<Module>>> getModulesByUniversityId(@PathVariable Long universityId) {
+        if (ConditionalRequests.collectionNotModified("university-modules", "hal", universityId + "-" + moduleService.aggregateVersionByUniversityId(universityId))) {
+            return ResponseEntity.status(NOT_MODIFIED).build();
+        }
+
         List<EntityModel<Module>> modules = moduleService.getModulesByUniversityId(universityId).stream()
-                .map(module -> EntityModel.of(module,
-                        linkTo(methodOn(UniversityController.class).getModulesByUniversityId(universityId)).withSelfRel()))
+                .map(module -> EntityModel.of(module, linkTemplates.universityModules(universityId, IanaLinkRelations.SELF)))
                 .collect(Collectors.toList());
 
         HttpHeaders headers = new HttpHeaders();
@@ -139,27 +206,27 @@ public class UniversityController {
                 .body(entityModel);
     }
 
+    /**
+     * Imports many universities at once from NDJSON (one university per line, modules included) or CSV (header row
+     * of university properties). Rows are committed in chunks; rejected rows are listed in the report.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<BulkImportReport> importUniversities(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                               @RequestParam(required = false) Integer chunkSize,
+                                                               InputStream body) throws IOException {
+        BulkImportReport report = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? importService.importNdjson(body, chunkSize)
+                : importService.importCsv(body, chunkSize);
+        return ResponseEntity.ok(report);
+    }
 
+    /**
+     * Replaces a university. Its modules are reconciled with the stored ones, so only modules that were added,
+     * changed or left out are written. Creates the university if it does not exist.
+     */
     @PutMapping("/{id}")
     public ResponseEntity<EntityModel<University>> updateUniversity(@PathVariable Long id, @RequestBody University universityDetails) {
-        University updatedUniversity = universityService.findById(id)
-                .map(university -> {
-                    // Update the basic fields
-                    university.setName(universityDetails.getName());
-                    university.setCountry(universityDetails.getCountry());
-                    university.setDepartmentName(universityDetails.getDepartmentName());
-                    university.setDepartmentUrl(universityDetails.getDepartmentUrl());
-                    university.setContactPerson(universityDetails.getContactPerson());
-                    university.setMaxOutgoingStudents(universityDetails.getMaxOutgoingStudents());
-                    university.setMaxIncomingStudents(universityDetails.getMaxIncomingStudents());
-                    university.setNextSpringSemesterStart(universityDetails.getNextSpringSemesterStart());
-                    university.setNextAutumnSemesterStart(universityDetails.getNextAutumnSemesterStart());
-
-                    // Update the modules collection
-                    updateModules(university, universityDetails);
-
-                    return universityService.save(university);
-                })
+        University updatedUniversity = universityService.update(id, universityDetails)
                 .orElseGet(() -> {
                     universityDetails.setId(id);
                     return universityService.save(universityDetails);
@@ -168,17 +235,20 @@ public class UniversityController {
         return getResponseEntity(id, updatedUniversity);
     }
 
-    private void updateModules(University existingUniversity, University updatedUniversityDetails) {
-        List<Module> updatedModules = updatedUniversityDetails.getModules();
-
-        // Clear the existing modules
-        existingUniversity.getModules().clear();
-
-        // Add the updated modules
-        for (Module module : updatedModules) {
-            module.setUniversity(existingUniversity);
-            existingUniversity.getModules().add(module);
+    /**
+     * Changes only the properties present in a JSON Merge Patch document. A {@code modules} member replaces the
+     * list of modules, reconciled as for {@code PUT}.
+     */
+    @PatchMapping(value = "/{id}", consumes = MERGE_PATCH_JSON_VALUE)
+    public ResponseEntity<EntityModel<University>> patchUniversity(@PathVariable Long id, @RequestBody JsonNode patch) {
+        University patchedUniversity;
+        try {
+            patchedUniversity = universityService.patch(id, patch)
+                    .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "University not found"));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage());
         }
+        return getResponseEntity(id, patchedUniversity);
     }
 
     @DeleteMapping("/{id}")
@@ -186,4 +256,21 @@ public class UniversityController {
         universityService.deleteById(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Deletes every university in a country, with its modules, in one transaction.
+     */
+    @DeleteMapping(params = "country")
+    public ResponseEntity<BulkDeleteReport> deleteUniversitiesByCountry(@RequestParam String country) {
+        return ResponseEntity.ok(universityService.deleteByCountry(country));
+    }
+
+    /**
+     * Deletes the universities whose ids are listed in the body, with their modules, in one transaction. Unknown ids
+     * are ignored.
+     */
+    @PostMapping(value = "/bulk-delete", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkDeleteReport> deleteUniversities(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(universityService.deleteAllById(ids));
+    }
 }
@@ -0,0 +1,50 @@
+package com.example.partneruniversities.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, and records their text while asked to. The
+ * statements are passed through unchanged.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private final ThreadLocal<int[]> count = ThreadLocal.withInitial(() -> new int[1]);
+    private final ThreadLocal<List<String>> recorded = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        count.get()[0]++;
+        List<String> statements = recorded.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Records the statements prepared on the current thread from now on, until {@link #stopRecording()}.
+     */
+    public void startRecording() {
+        recorded.set(new ArrayList<>());
+    }
+
+    /**
+     * Stops recording on the current thread and returns the statements prepared since {@link #startRecording()}.
+     */
+    public List<String> stopRecording() {
+        List<String> statements = recorded.get();
+        recorded.remove();
+        return statements == null ? List.of() : statements;
+    }
+
+    public void reset() {
+        count.get()[0] = 0;
+    }
+
+    public int count() {
+        return count.get()[0];
+    }
+}
@@ -1,23 +1,36 @@
 package com.example.partneruniversities.model;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.hateoas.RepresentationModel;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "universities")
 public class University extends RepresentationModel<University> {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "university_seq")
+    @SequenceGenerator(name = "university_seq", sequenceName = "university_seq", allocationSize = 50)
     private Long id;
 
+    @Version
+    @JsonIgnore
+    private long version;
+
     private String name;
     private String country;
     private String departmentName;
@@ -25,11 +38,16 @@ public class University extends RepresentationModel<University> {
     private String contactPerson;
     private int maxIncomingStudents;
     private int maxOutgoingStudents;
-    private String nextSpringSemesterStart;
-    private String nextAutumnSemesterStart;
+    // Read and written as ISO dates (yyyy-MM-dd), the format these fields had as strings
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDate nextSpringSemesterStart;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDate nextAutumnSemesterStart;
 
     @OneToMany(mappedBy = "university", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "university-modules")
     @JsonManagedReference
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<Module> modules = new ArrayList<>();
 
     // Getters and Setters
@@ -42,6 +60,14 @@ public class University extends RepresentationModel<University> {
         this.id = id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -98,19 +124,19 @@ public class University extends RepresentationModel<University> {
         this.maxOutgoingStudents = maxOutgoingStudents;
     }
 
-    public String getNextSpringSemesterStart() {
+    public LocalDate getNextSpringSemesterStart() {
         return nextSpringSemesterStart;
     }
 
-    public void setNextSpringSemesterStart(String nextSpringSemesterStart) {
+    public void setNextSpringSemesterStart(LocalDate nextSpringSemesterStart) {
         this.nextSpringSemesterStart = nextSpringSemesterStart;
     }
 
-    public String getNextAutumnSemesterStart() {
+    public LocalDate getNextAutumnSemesterStart() {
         return nextAutumnSemesterStart;
     }
 
-    public void setNextAutumnSemesterStart(String nextAutumnSemesterStart) {
+    public void setNextAutumnSemesterStart(LocalDate nextAutumnSemesterStart) {
         this.nextAutumnSemesterStart = nextAutumnSemesterStart;
     }
 
@@ -124,7 +150,7 @@ public class University extends RepresentationModel<University> {
 
     @Override
     public String toString() {
-        ObjectMapper mapper = new ObjectMapper();
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
         try {
             return mapper.writeValueAsString(this);
         } catch (JsonProcessingException e) {
@@ -1,17 +1,81 @@
 package com.example.partneruniversities.repository;
 
 import com.example.partneruniversities.model.Module;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_FLUSH_MODE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface ModuleRepository extends JpaRepository<Module, Long> {
 
+    /**
+     * Cached in the query cache; any write to the module table invalidates the cached results.
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Module> findByUniversityId(Long universityId);
 
+    /**
+     * Ids of the modules currently stored for a university. Does not flush, so it can be called while a new state
+     * of the university is still being assembled.
+     */
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query("SELECT m.id FROM Module m WHERE m.university.id = :universityId")
+    List<Long> findIdsByUniversityId(Long universityId);
+
+    @Query("SELECT m.version FROM Module m WHERE m.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    /**
+     * Fingerprint of the whole table (row count, version sum and id sum); it changes on every insert, update and delete.
+     */
+    @Query("SELECT CONCAT(CAST(COUNT(m) AS String), '-', CAST(COALESCE(SUM(m.version), 0) AS String), '-', CAST(COALESCE(SUM(m.id), 0) AS String)) FROM Module m")
+    String aggregateVersion();
+
+    @Query("SELECT CONCAT(CAST(COUNT(m) AS String), '-', CAST(COALESCE(SUM(m.version), 0) AS String), '-', CAST(COALESCE(SUM(m.id), 0) AS String)) FROM Module m WHERE m.university.id = :universityId")
+    String aggregateVersionByUniversityId(Long universityId);
+
+    /**
+     * Keyset page: modules with an id greater than the given cursor, ordered by the pageable's sort.
+     * Returned as a slice so no count query is issued.
+     */
+    Slice<Module> findByIdGreaterThan(Long id, Pageable pageable);
+
+    /**
+     * Forward-only stream over all modules after the given id. Must be consumed inside a transaction
+     * and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT m FROM Module m WHERE m.id > :afterId ORDER BY m.id")
+    Stream<Module> streamByIdGreaterThan(Long afterId);
+
+    /**
+     * Ids of the modules of any of the given universities, for invalidating cached representations before a bulk
+     * delete.
+     */
+    @Query("SELECT m.id FROM Module m WHERE m.university.id IN :universityIds")
+    List<Long> findIdsByUniversityIdIn(Collection<Long> universityIds);
+
+    /**
+     * Bulk delete that bypasses the second-level cache; Hibernate therefore evicts the whole {@code modules} and
+     * {@code university-modules} regions and invalidates cached queries on the module table when it runs.
+     */
     @Modifying
-    @Query("DELETE FROM Module m WHERE m.university.id = :universityId")
-    void deleteByUniversityId(Long universityId);
+    @Query("DELETE FROM Module m WHERE m.university.id IN :universityIds")
+    int deleteByUniversityIdIn(Collection<Long> universityIds);
 }
@@ -0,0 +1,25 @@
+package com.example.partneruniversities.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Inclusive bounds on the next spring and autumn semester starts of a university. Null bounds are open; a university
+ * without a date only matches when both bounds of that semester are open.
+ */
+public record SemesterStartRange(LocalDate springFrom, LocalDate springTo, LocalDate autumnFrom, LocalDate autumnTo) {
+
+    public static final SemesterStartRange UNBOUNDED = new SemesterStartRange(null, null, null, null);
+
+    public SemesterStartRange {
+        if (springFrom != null && springTo != null && springFrom.isAfter(springTo)) {
+            throw new IllegalArgumentException("springStartFrom must not be after springStartTo");
+        }
+        if (autumnFrom != null && autumnTo != null && autumnFrom.isAfter(autumnTo)) {
+            throw new IllegalArgumentException("autumnStartFrom must not be after autumnStartTo");
+        }
+    }
+
+    public boolean isUnbounded() {
+        return springFrom == null && springTo == null && autumnFrom == null && autumnTo == null;
+    }
+}
@@ -1,12 +1,75 @@
 package com.example.partneruniversities.repository;
 
 import com.example.partneruniversities.model.University;
-import org.springframework.data.domain.Page;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 @Repository
-public interface UniversityRepository extends JpaRepository<University, Long> {
-    Page<University> findByNameContainingAndCountryContainingAndDepartmentNameContaining(String name, String country, String departmentName, Pageable pageable);
+public interface UniversityRepository extends JpaRepository<University, Long>, UniversityRepositoryCustom {
+
+    /**
+     * Largest search page kept in the query cache. A cached result holds the selected rows themselves, not just
+     * their ids, so larger pages would fill the region with copies of most of the table; they go to the database.
+     */
+    int MAX_CACHED_PAGE_SIZE = 100;
+
+    Slice<University> findAllBy(Pageable pageable);
+
+    @Query("SELECT DISTINCT u FROM University u LEFT JOIN FETCH u.modules WHERE u.id IN :ids")
+    List<University> findWithModulesByIdIn(Collection<Long> ids);
+
+    /**
+     * Replaces the count query of the default implementation with a cached one, as this is asked on every module
+     * write.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("SELECT COUNT(u) > 0 FROM University u WHERE u.id = :id")
+    boolean existsById(Long id);
+
+    @Query("SELECT u.version FROM University u WHERE u.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    /**
+     * Fingerprint of the whole table (row count, version sum and id sum); it changes on every insert, update and delete.
+     */
+    @Query("SELECT CONCAT(CAST(COUNT(u) AS String), '-', CAST(COALESCE(SUM(u.version), 0) AS String), '-', CAST(COALESCE(SUM(u.id), 0) AS String)) FROM University u")
+    String aggregateVersion();
+
+    /**
+     * The subset of the given ids that exist, answered with a single {@code IN} query.
+     */
+    @Query("SELECT u.id FROM University u WHERE u.id IN :ids")
+    List<Long> findExistingIdsByIdIn(Collection<Long> ids);
+
+    @Query("SELECT u.id FROM University u WHERE u.country = :country")
+    List<Long> findIdsByCountry(String country);
+
+    /**
+     * Deletes the given universities with a single statement. Their modules must have been deleted before.
+     */
+    @Modifying
+    @Query("DELETE FROM University u WHERE u.id IN :ids")
+    int deleteByIdIn(Collection<Long> ids);
+
+    /**
+     * Pages of up to {@link #MAX_CACHED_PAGE_SIZE} universities; larger ones are read with
+     * {@link #readByNameContainingAndCountryContainingAndDepartmentNameContaining}.
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Slice<University> findByNameContainingAndCountryContainingAndDepartmentNameContaining(String name, String country, String departmentName, Pageable pageable);
+
+    Slice<University> readByNameContainingAndCountryContainingAndDepartmentNameContaining(String name, String country, String departmentName, Pageable pageable);
 }
@@ -0,0 +1,28 @@
+package com.example.partneruniversities.repository;
+
+import com.example.partneruniversities.model.University;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface UniversityRepositoryCustom {
+
+    /**
+     * Keyset query over universities ordered by {@code sortBy} and then id. Only rows strictly after
+     * ({@code afterValue}, {@code afterId}) in that order are returned; pass a null {@code afterId} to start
+     * from the beginning. Null filters are not applied, empty ones match any non-null value. The semester start
+     * bounds are applied as range conditions on the indexed date columns. Results of at most
+     * {@link UniversityRepository#MAX_CACHED_PAGE_SIZE} rows, plus the one that tells whether there is a next page,
+     * are kept in the query cache.
+     */
+    List<University> findSeek(String name, String country, String departmentName, SemesterStartRange semesterStarts,
+                              String sortBy, boolean ascending, String afterValue, Long afterId, int limit);
+
+    /**
+     * Bumps the version of a university whose representation changed without its row changing, such as when one
+     * of its modules is created, updated or deleted.
+     */
+    void incrementVersion(Long id);
+
+    void incrementVersions(Collection<Long> ids);
+}
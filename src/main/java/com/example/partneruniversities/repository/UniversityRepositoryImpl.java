@@ -0,0 +1,157 @@
+package com.example.partneruniversities.repository;
+
+import com.example.partneruniversities.model.University;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.hibernate.Cache;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Seek-based pagination for {@link UniversityRepository}. Each page is a range scan from the previous
+ * page's last sort key, so its cost does not depend on how deep into the listing it is. Pages of up to
+ * {@link UniversityRepository#MAX_CACHED_PAGE_SIZE} universities are cached in the query cache until the next write to the
+ * university table.
+ */
+public class UniversityRepositoryImpl implements UniversityRepositoryCustom {
+
+    private static final String MODULES_ROLE = University.class.getName() + ".modules";
+
+    private final EntityManager entityManager;
+
+    public UniversityRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<University> findSeek(String name, String country, String departmentName, SemesterStartRange semesterStarts,
+                                     String sortBy, boolean ascending, String afterValue, Long afterId, int limit) {
+        Class<?> sortType = sortAttributeType(sortBy);
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT u FROM University u WHERE 1 = 1");
+
+        appendContains(jpql, parameters, "name", name);
+        appendContains(jpql, parameters, "country", country);
+        appendContains(jpql, parameters, "departmentName", departmentName);
+        appendBound(jpql, parameters, "nextSpringSemesterStart", " >= ", "springFrom", semesterStarts.springFrom());
+        appendBound(jpql, parameters, "nextSpringSemesterStart", " <= ", "springTo", semesterStarts.springTo());
+        appendBound(jpql, parameters, "nextAutumnSemesterStart", " >= ", "autumnFrom", semesterStarts.autumnFrom());
+        appendBound(jpql, parameters, "nextAutumnSemesterStart", " <= ", "autumnTo", semesterStarts.autumnTo());
+
+        String field = "u." + sortBy;
+        boolean byId = sortBy.equals("id");
+        if (afterId != null) {
+            parameters.put("afterId", afterId);
+            String idComparison = ascending ? "u.id > :afterId" : "u.id < :afterId";
+            if (byId) {
+                jpql.append(" AND ").append(idComparison);
+            } else if (afterValue == null) {
+                // Nulls sort first ascending and last descending
+                jpql.append(ascending
+                        ? " AND ((" + field + " IS NULL AND " + idComparison + ") OR " + field + " IS NOT NULL)"
+                        : " AND (" + field + " IS NULL AND " + idComparison + ")");
+            } else {
+                parameters.put("afterValue", sortType == LocalDate.class
+                        ? LocalDate.parse(afterValue)
+                        : DefaultConversionService.getSharedInstance().convert(afterValue, sortType));
+                String operator = ascending ? " > " : " < ";
+                jpql.append(" AND (").append(field).append(operator).append(":afterValue")
+                        .append(" OR (").append(field).append(" = :afterValue AND ").append(idComparison).append(")")
+                        .append(ascending ? ")" : " OR " + field + " IS NULL)");
+            }
+        }
+
+        String direction = ascending ? " ASC" : " DESC";
+        jpql.append(" ORDER BY ");
+        if (!byId) {
+            jpql.append(field).append(direction).append(ascending ? " NULLS FIRST, " : " NULLS LAST, ");
+        }
+        jpql.append("u.id").append(direction);
+
+        TypedQuery<University> query = entityManager.createQuery(jpql.toString(), University.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit)
+                .setHint(HibernateHints.HINT_CACHEABLE, limit <= UniversityRepository.MAX_CACHED_PAGE_SIZE + 1)
+                .getResultList();
+    }
+
+    /**
+     * Increments through the loaded entity rather than with a bulk {@code UPDATE}, which would make Hibernate evict
+     * every university from the second-level cache. The university usually comes from that cache, and only its own
+     * entry is replaced after the commit. Its cached module collection, which Hibernate does not update when a
+     * module is written on its own, is evicted now and again after the commit, so no read running concurrently
+     * with the write can leave the old collection cached.
+     */
+    @Override
+    @Transactional
+    public void incrementVersion(Long id) {
+        incrementVersions(List.of(id));
+    }
+
+    @Override
+    @Transactional
+    public void incrementVersions(Collection<Long> ids) {
+        for (Long id : ids) {
+            University university = entityManager.find(University.class, id);
+            if (university != null) {
+                entityManager.lock(university, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            }
+        }
+        evictModules(ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictModules(ids);
+            }
+        });
+    }
+
+    private void evictModules(Collection<Long> universityIds) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache().unwrap(Cache.class);
+        universityIds.forEach(id -> cache.evictCollectionData(MODULES_ROLE, id));
+    }
+
+    private Class<?> sortAttributeType(String sortBy) {
+        EntityType<University> entityType = entityManager.getMetamodel().entity(University.class);
+        Attribute<? super University, ?> attribute;
+        try {
+            attribute = entityType.getAttribute(sortBy);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown sort property: " + sortBy, e);
+        }
+        if (!(attribute instanceof SingularAttribute<?, ?>) || attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC) {
+            throw new IllegalArgumentException("Cannot sort by: " + sortBy);
+        }
+        return attribute.getJavaType();
+    }
+
+    private static void appendContains(StringBuilder jpql, Map<String, Object> parameters, String field, String value) {
+        if (value == null) {
+            return;
+        }
+        jpql.append(" AND u.").append(field).append(" LIKE :").append(field).append(" ESCAPE '!'");
+        parameters.put(field, "%" + value.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%");
+    }
+
+    private static void appendBound(StringBuilder jpql, Map<String, Object> parameters, String field, String operator,
+                                    String parameter, LocalDate bound) {
+        if (bound == null) {
+            return;
+        }
+        jpql.append(" AND u.").append(field).append(operator).append(":").append(parameter);
+        parameters.put(parameter, bound);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.partneruniversities.service;
+
+/**
+ * Outcome of a bulk delete: how many universities were deleted and how many modules with them.
+ */
+public record BulkDeleteReport(long universitiesDeleted, long modulesDeleted) {
+}
@@ -0,0 +1,13 @@
+package com.example.partneruniversities.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Rows are numbered from 1, not counting a CSV header. Only the first errors are listed;
+ * {@code failed} counts all of them.
+ */
+public record BulkImportReport(long imported, long failed, List<RowError> errors) {
+
+    public record RowError(long row, String message) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.partneruniversities.service;
+
+import java.util.List;
+
+/**
+ * A page of results addressed by cursors. A null cursor means there is nothing further in that direction.
+ */
+public record CursorSlice<T>(List<T> content, String nextCursor, String prevCursor) {
+}
@@ -0,0 +1,14 @@
+package com.example.partneruniversities.service;
+
+import com.example.partneruniversities.model.Module;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch module creation. Rejected modules are identified by their position in the request array.
+ */
+public record ModuleBatchResult(List<Module> created, List<Rejection> rejected) {
+
+    public record Rejection(int index, String message) {
+    }
+}
@@ -1,32 +1,97 @@
 package com.example.partneruniversities.service;
 
 import com.example.partneruniversities.model.Module;
+import com.example.partneruniversities.model.University;
 import com.example.partneruniversities.repository.ModuleRepository;
+import com.example.partneruniversities.repository.UniversityRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "service.invocations", histogram = true)
 public class ModuleService {
 
     private final ModuleRepository moduleRepository;
+    private final UniversityRepository universityRepository;
+    private final EntityManager entityManager;
 
-    public ModuleService(ModuleRepository moduleRepository) {
+    public ModuleService(ModuleRepository moduleRepository, UniversityRepository universityRepository,
+                         EntityManager entityManager) {
         this.moduleRepository = moduleRepository;
+        this.universityRepository = universityRepository;
+        this.entityManager = entityManager;
     }
 
     public List<Module> findAll() {
         return moduleRepository.findAll();
     }
 
+    /**
+     * Returns up to {@code size} modules whose id is greater than {@code afterId}, in id order.
+     */
+    public Slice<Module> findAfter(Long afterId, int size) {
+        return moduleRepository.findByIdGreaterThan(afterId, PageRequest.of(0, size, Sort.by("id")));
+    }
+
+    /**
+     * Streams every module after {@code afterId} to the given action, detaching each one once it has
+     * been handled so the persistence context does not grow with the table.
+     */
+    @Transactional(readOnly = true)
+    public void forEachAfter(Long afterId, Consumer<Module> action) {
+        try (Stream<Module> modules = moduleRepository.streamByIdGreaterThan(afterId)) {
+            modules.forEach(module -> {
+                action.accept(module);
+                entityManager.detach(module);
+            });
+        }
+    }
+
     public List<Module> getModulesByUniversityId(Long universityId) {
         return moduleRepository.findByUniversityId(universityId);
     }
 
+    public Optional<Long> findVersion(Long id) {
+        return moduleRepository.findVersionById(id);
+    }
+
+    public String aggregateVersion() {
+        return moduleRepository.aggregateVersion();
+    }
+
+    public String aggregateVersionByUniversityId(Long universityId) {
+        return moduleRepository.aggregateVersionByUniversityId(universityId);
+    }
+
+    public List<Long> getModuleIdsByUniversityId(Long universityId) {
+        return moduleRepository.findIdsByUniversityId(universityId);
+    }
+
+    public List<Long> getModuleIdsByUniversityIds(Collection<Long> universityIds) {
+        return moduleRepository.findIdsByUniversityIdIn(universityIds);
+    }
+
+    /**
+     * Deletes the modules of all the given universities with a single statement and returns how many there were.
+     */
     @Transactional
-    public void deleteModulesByUniversityId(Long universityId) {
-        moduleRepository.deleteByUniversityId(universityId);
+    public int deleteModulesByUniversityIds(Collection<Long> universityIds) {
+        return moduleRepository.deleteByUniversityIdIn(universityIds);
     }
 
     @Transactional
@@ -34,6 +99,47 @@ public class ModuleService {
         return moduleRepository.save(module);
     }
 
+    /**
+     * Creates many modules in one transaction. All referenced universities are checked with one query and the
+     * inserts are sent as JDBC batches. With {@code atomic} set, a single invalid module rejects the whole batch;
+     * otherwise the valid modules are created and the invalid ones reported.
+     */
+    @Transactional
+    public ModuleBatchResult createAll(List<Module> modules, boolean atomic) {
+        Set<Long> requestedIds = modules.stream()
+                .map(Module::getUniversity)
+                .filter(university -> university != null && university.getId() != null)
+                .map(University::getId)
+                .collect(Collectors.toSet());
+        Set<Long> existingIds = requestedIds.isEmpty()
+                ? Set.of()
+                : new HashSet<>(universityRepository.findExistingIdsByIdIn(requestedIds));
+
+        List<Module> valid = new ArrayList<>();
+        List<ModuleBatchResult.Rejection> rejected = new ArrayList<>();
+        for (int i = 0; i < modules.size(); i++) {
+            Module module = modules.get(i);
+            University university = module.getUniversity();
+            if (university == null || university.getId() == null) {
+                rejected.add(new ModuleBatchResult.Rejection(i, "University is mandatory"));
+            } else if (!existingIds.contains(university.getId())) {
+                rejected.add(new ModuleBatchResult.Rejection(i, "University " + university.getId() + " not found"));
+            } else {
+                module.setId(null);
+                module.setVersion(0);
+                module.setUniversity(universityRepository.getReferenceById(university.getId()));
+                valid.add(module);
+            }
+        }
+        if (valid.isEmpty() || (atomic && !rejected.isEmpty())) {
+            return new ModuleBatchResult(List.of(), rejected);
+        }
+
+        List<Module> created = moduleRepository.saveAll(valid);
+        universityRepository.incrementVersions(created.stream().map(module -> module.getUniversity().getId()).collect(Collectors.toSet()));
+        return new ModuleBatchResult(created, rejected);
+    }
+
     public Module findById(Long id) {
         return moduleRepository.findById(id).orElseThrow(() -> new RuntimeException("Module not found"));
     }
@@ -0,0 +1,33 @@
+package com.example.partneruniversities.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for university listings: the sort key and id of the row a page starts
+ * after (or ends before, when paging backwards).
+ */
+public record UniversityCursor(String value, long id, boolean backward) {
+
+    private static final String NULL_VALUE = "~";
+    private static final String VALUE_PREFIX = "=";
+
+    public String encode() {
+        String raw = id + ":" + (backward ? "b" : "f") + ":" + (value == null ? NULL_VALUE : VALUE_PREFIX + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static UniversityCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            if (parts.length != 3 || !(parts[1].equals("f") || parts[1].equals("b"))) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            String value = parts[2].startsWith(VALUE_PREFIX) ? parts[2].substring(VALUE_PREFIX.length()) : null;
+            return new UniversityCursor(value, Long.parseLong(parts[0]), parts[1].equals("b"));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.partneruniversities.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Writes the whole catalog, every university with its modules in id order, to an output stream. The rows are read
+ * through a single forward-only cursor over universities joined with their modules and written as they arrive, in
+ * chunks of {@link #CHUNK_SIZE} characters, so memory use does not depend on the size of the catalog. No entities
+ * are loaded, so the export neither fills the persistence context nor the second-level cache.
+ */
+@Service
+public class UniversityExportService {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String QUERY = "SELECT u.id, u.name, u.country, u.department_name, u.department_url, "
+            + "u.contact_person, u.max_incoming_students, u.max_outgoing_students, u.next_spring_semester_start, "
+            + "u.next_autumn_semester_start, m.id, m.name, m.semester, m.credit_points "
+            + "FROM university u LEFT JOIN module m ON m.university_id = u.id "
+            + "WHERE u.id > ? ORDER BY u.id";
+
+    private static final List<String> CSV_HEADER = List.of("id", "name", "country", "departmentName", "departmentUrl",
+            "contactPerson", "maxIncomingStudents", "maxOutgoingStudents", "nextSpringSemesterStart",
+            "nextAutumnSemesterStart", "moduleId", "moduleName", "moduleSemester", "moduleCreditPoints");
+
+    public enum Format {
+        /**
+         * One university per line, with its modules embedded, in the representation of the API without links.
+         */
+        NDJSON,
+        /**
+         * One row per module, the university's columns repeated on each; a university without modules has a single
+         * row with empty module columns.
+         */
+        CSV
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public UniversityExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes the universities with an id greater than {@code afterId} (0 for all of them), and returns the id of the
+     * last one written, or {@code afterId} if there was none. The rows of a university are written together, so a
+     * client whose download broke off discards the incomplete last university and resumes after the one before it.
+     */
+    public long export(Format format, long afterId, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), CHUNK_SIZE);
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+        long lastId;
+        try {
+            lastId = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> read(connection, afterId, rows));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        rows.finish();
+        writer.flush();
+        return lastId;
+    }
+
+    private static long read(Connection connection, long afterId, RowWriter rows) throws SQLException {
+        // Without lazy execution H2 computes the whole result before returning the first row
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION TRUE");
+        }
+        try (PreparedStatement statement = connection.prepareStatement(QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setLong(1, afterId);
+            long lastId = afterId;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long id = resultSet.getLong(1);
+                    rows.row(resultSet, id != lastId);
+                    lastId = id;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return lastId;
+        } finally {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LAZY_QUERY_EXECUTION FALSE");
+            }
+        }
+    }
+
+    private static String date(ResultSet resultSet, int column) throws SQLException {
+        LocalDate date = resultSet.getObject(column, LocalDate.class);
+        return date == null ? null : date.toString();
+    }
+
+    private static Long nullableLong(ResultSet resultSet, int column) throws SQLException {
+        long value = resultSet.getLong(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private interface RowWriter {
+
+        /**
+         * Writes one row of the result; {@code first} is set on the first row of each university.
+         */
+        void row(ResultSet resultSet, boolean first) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+        private boolean open;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void row(ResultSet resultSet, boolean first) throws SQLException, IOException {
+            if (first) {
+                endUniversity();
+                generator.writeStartObject();
+                generator.writeNumberField("id", resultSet.getLong(1));
+                generator.writeStringField("name", resultSet.getString(2));
+                generator.writeStringField("country", resultSet.getString(3));
+                generator.writeStringField("departmentName", resultSet.getString(4));
+                generator.writeStringField("departmentUrl", resultSet.getString(5));
+                generator.writeStringField("contactPerson", resultSet.getString(6));
+                generator.writeNumberField("maxIncomingStudents", resultSet.getInt(7));
+                generator.writeNumberField("maxOutgoingStudents", resultSet.getInt(8));
+                generator.writeStringField("nextSpringSemesterStart", date(resultSet, 9));
+                generator.writeStringField("nextAutumnSemesterStart", date(resultSet, 10));
+                generator.writeArrayFieldStart("modules");
+                open = true;
+            }
+            Long moduleId = nullableLong(resultSet, 11);
+            if (moduleId != null) {
+                generator.writeStartObject();
+                generator.writeNumberField("id", moduleId);
+                generator.writeStringField("name", resultSet.getString(12));
+                generator.writeNumberField("semester", resultSet.getInt(13));
+                generator.writeNumberField("creditPoints", resultSet.getInt(14));
+                generator.writeEndObject();
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            endUniversity();
+            generator.flush();
+        }
+
+        private void endUniversity() throws IOException {
+            if (open) {
+                generator.writeEndArray();
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                open = false;
+            }
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            for (int i = 0; i < CSV_HEADER.size(); i++) {
+                field(i, CSV_HEADER.get(i));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void row(ResultSet resultSet, boolean first) throws SQLException, IOException {
+            for (int column = 1; column <= CSV_HEADER.size(); column++) {
+                field(column - 1, column == 9 || column == 10 ? date(resultSet, column) : resultSet.getString(column));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        private void field(int index, String value) throws IOException {
+            if (index > 0) {
+                writer.write(',');
+            }
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+            } else {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.partneruniversities.service;
+
+import com.example.partneruniversities.model.Module;
+import com.example.partneruniversities.model.University;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Streams universities (with their modules) from NDJSON or CSV into the database in chunks.
+ * <p>
+ * Each chunk is persisted in its own transaction so ids come from the pooled sequences and inserts are sent in
+ * JDBC batches. If a chunk fails, its rows are retried one by one so that only the offending rows are rejected.
+ */
+@Service
+public class UniversityImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final UniversitySearchIndex searchIndex;
+    private final int defaultChunkSize;
+
+    public UniversityImportService(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                   ObjectMapper objectMapper, Validator validator, UniversitySearchIndex searchIndex,
+                                   @Value("${partner-universities.bulk-import.chunk-size:500}") int defaultChunkSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.searchIndex = searchIndex;
+        this.defaultChunkSize = defaultChunkSize;
+    }
+
+    /**
+     * Imports one JSON university per line. Blank lines are skipped.
+     */
+    public BulkImportReport importNdjson(InputStream inputStream, Integer chunkSize) throws IOException {
+        Import run = new Import(chunkSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            long row = 0;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                row++;
+                try {
+                    run.add(row, objectMapper.readValue(line, University.class));
+                } catch (JsonProcessingException e) {
+                    run.reject(row, "Malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return run.finish();
+    }
+
+    /**
+     * Imports universities from CSV with a header row naming the university properties. Quoted fields may span
+     * lines. Modules cannot be expressed in CSV; use NDJSON for those.
+     */
+    public BulkImportReport importCsv(InputStream inputStream, Integer chunkSize) throws IOException {
+        Import run = new Import(chunkSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            List<String> header = readCsvRecord(reader);
+            if (header == null) {
+                return run.finish();
+            }
+            long row = 0;
+            while (true) {
+                List<String> fields;
+                try {
+                    fields = readCsvRecord(reader);
+                } catch (IllegalArgumentException e) {
+                    // Only an unterminated quoted field, which ran to the end of the input
+                    run.reject(++row, e.getMessage());
+                    break;
+                }
+                if (fields == null) {
+                    break;
+                }
+                row++;
+                try {
+                    if (fields.size() != header.size()) {
+                        throw new IllegalArgumentException("Expected " + header.size() + " columns but found " + fields.size());
+                    }
+                    ObjectNode node = objectMapper.createObjectNode();
+                    for (int i = 0; i < header.size(); i++) {
+                        if (!fields.get(i).isEmpty()) {
+                            node.put(header.get(i).trim(), fields.get(i));
+                        }
+                    }
+                    run.add(row, objectMapper.treeToValue(node, University.class));
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    run.reject(row, e.getMessage());
+                }
+            }
+        }
+        return run.finish();
+    }
+
+    /**
+     * Reads the next CSV record, or returns null at the end of the input. Blank lines between records are skipped.
+     * A record continues on the next line while a quoted field is open, and the line break becomes part of the
+     * field as {@code \n}.
+     */
+    static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (!quoted) {
+                break;
+            }
+            line = reader.readLine();
+            if (line == null) {
+                throw new IllegalArgumentException("Unterminated quoted field");
+            }
+            field.append('\n');
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record Row(long number, University university) {
+    }
+
+    /**
+     * State of one import run: the pending chunk and the counters for the report.
+     */
+    private final class Import {
+
+        private final int chunkSize;
+        private final List<Row> chunk = new ArrayList<>();
+        private final List<BulkImportReport.RowError> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+
+        Import(Integer chunkSize) {
+            this.chunkSize = chunkSize != null && chunkSize > 0 ? chunkSize : defaultChunkSize;
+        }
+
+        void add(long row, University university) {
+            Set<ConstraintViolation<Object>> violations = validate(university);
+            if (!violations.isEmpty()) {
+                reject(row, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .collect(Collectors.joining(", ")));
+                return;
+            }
+            chunk.add(new Row(row, university));
+            if (chunk.size() >= chunkSize) {
+                flushChunk();
+            }
+        }
+
+        void reject(long row, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new BulkImportReport.RowError(row, message));
+            }
+        }
+
+        BulkImportReport finish() {
+            flushChunk();
+            return new BulkImportReport(imported, failed, errors);
+        }
+
+        private Set<ConstraintViolation<Object>> validate(University university) {
+            prepare(university);
+            Set<ConstraintViolation<Object>> violations = new HashSet<>(validator.validate(university));
+            for (Module module : university.getModules()) {
+                violations.addAll(validator.validate(module));
+            }
+            return violations;
+        }
+
+        private void flushChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                persist(chunk);
+                imported += chunk.size();
+            } catch (RuntimeException chunkFailure) {
+                for (Row row : chunk) {
+                    try {
+                        prepare(row.university());
+                        persist(List.of(row));
+                        imported++;
+                    } catch (RuntimeException rowFailure) {
+                        reject(row.number(), rootMessage(rowFailure));
+                    }
+                }
+            }
+            chunk.clear();
+        }
+
+        private void persist(List<Row> rows) {
+            transactionTemplate.executeWithoutResult(status -> {
+                rows.forEach(row -> entityManager.persist(row.university()));
+                entityManager.flush();
+                entityManager.clear();
+            });
+            rows.forEach(row -> searchIndex.put(row.university()));
+        }
+    }
+
+    /**
+     * Imported rows always become new universities and modules, whatever ids the input carried.
+     */
+    private static void prepare(University university) {
+        university.setId(null);
+        university.setVersion(0);
+        if (university.getModules() == null) {
+            university.setModules(new ArrayList<>());
+        }
+        for (Module module : university.getModules()) {
+            module.setId(null);
+            module.setVersion(0);
+            module.setUniversity(university);
+        }
+    }
+
+    private static String rootMessage(Throwable failure) {
+        Throwable root = failure;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+}
@@ -0,0 +1,825 @@
+package com.example.partneruniversities.service;
+
+import com.example.partneruniversities.model.University;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntToLongFunction;
+
+/**
+ * In-memory trigram index over university name, country and department name.
+ * <p>
+ * Every indexed university occupies a slot; posting lists hold slot numbers in ascending order so they can be
+ * intersected without sorting. Updates append a new slot and retire the old one, and the index is compacted once
+ * more than half of its slots are retired. Candidates are always verified against the stored values, so results
+ * match the case-sensitive {@code LIKE '%x%'} semantics of the database query exactly.
+ * <p>
+ * The universities are also kept in the order of every sort key, and in the order of name length for relevance, so
+ * a page of a search with many matches is read by walking that order from the cursor until the page is full. When
+ * matches are too sparse for that, a heap bounded to the page keeps the nearest candidates. The matches are never
+ * sorted as a whole.
+ * <p>
+ * Writes reach the index after their commit, so they may arrive out of order, and while the index is being built the
+ * universities read at startup may arrive after a newer write. The index therefore keeps the version of every
+ * university and ignores older ones, and until it is ready it remembers the removed ids so that they stay removed.
+ */
+@Component
+public class UniversitySearchIndex {
+
+    /** Sort key answering "best match first": exact, then prefix, then infix matches, shorter names first. */
+    public static final String RELEVANCE = "relevance";
+
+    private static final int NAME = 0;
+    private static final int COUNTRY = 1;
+    private static final int DEPARTMENT = 2;
+    private static final String[] FIELDS = {"name", "country", "departmentName"};
+    private static final int MIN_COMPACT_SLOTS = 1024;
+    /** Non-matching universities a walk in sort order may pass, per hit it still needs, before a heap takes over. */
+    private static final int WALK_MISSES_PER_HIT = 64;
+    /**
+     * Gap between neighbouring labels when they are spread out; every insertion into a gap halves it, and once a gap
+     * is used up the labels around it are spread out again.
+     */
+    private static final long LABEL_SPACING = 1L << 32;
+    private static final int NAME_LENGTH_BITS = 20;
+    private static final int MAX_NAME_LENGTH = (1 << NAME_LENGTH_BITS) - 1;
+    /** Version of a removed university, newer than any it had; ids are never reused. */
+    private static final long REMOVED = Long.MAX_VALUE;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    /**
+     * The trigrams that occur, by every one- and two-character string they contain, for filters too short for trigrams.
+     */
+    private final Map<Long, Set<Long>> trigramsByGram = new HashMap<>();
+    /** Per field, the slots whose value has one or two characters and therefore no trigrams. */
+    private final List<IntList> shortValues = List.of(new IntList(), new IntList(), new IntList());
+    private final NavigableMap<Long, Integer> slotsById = new TreeMap<>();
+    /** The version of every indexed university and, until the index is ready, {@link #REMOVED} for removed ones. */
+    private final Map<Long, Long> versionsById = new HashMap<>();
+    /** Per field, the live universities by value and id; the hits' keys are the field values. */
+    private final List<NavigableSet<Hit>> sortedByField = List.of(
+            new TreeSet<>(Hit.ORDER), new TreeSet<>(Hit.ORDER), new TreeSet<>(Hit.ORDER));
+    /** The live universities by name length and id, the order of relevance among equally good matches. */
+    private final NavigableSet<Hit> sortedByNameLength = new TreeSet<>(Hit.ORDER);
+    private final BitSet live = new BitSet();
+    private long[] ids = new long[1024];
+    private String[][] values = new String[FIELDS.length][1024];
+    /** Per field, a number for every live slot that orders the slots like {@link #sortedByField}. */
+    private long[][] labels = new long[FIELDS.length][1024];
+    private int slotCount;
+    private int liveCount;
+    private volatile boolean ready;
+
+    /**
+     * Whether search results sorted by the given property can be answered from the index.
+     */
+    public boolean supports(String sortBy) {
+        return ready && (sortBy.equals("id") || sortBy.equals(RELEVANCE) || Arrays.asList(FIELDS).contains(sortBy));
+    }
+
+    /**
+     * Marks the index as complete. Until then {@link #supports(String)} returns false and callers use the database.
+     */
+    public void markReady() {
+        lock.writeLock().lock();
+        try {
+            versionsById.values().removeIf(version -> version == REMOVED);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes the university, replacing what is indexed for its id, unless a newer version of it is indexed already
+     * or it has been removed while the index is being built.
+     */
+    public void put(University university) {
+        lock.writeLock().lock();
+        try {
+            Long indexedVersion = versionsById.get(university.getId());
+            if (indexedVersion != null && indexedVersion > university.getVersion()) {
+                return;
+            }
+            versionsById.put(university.getId(), university.getVersion());
+            removeSlot(slotsById.remove(university.getId()));
+            int slot = slotCount++;
+            ensureCapacity(slotCount);
+            ids[slot] = university.getId();
+            values[NAME][slot] = university.getName();
+            values[COUNTRY][slot] = university.getCountry();
+            values[DEPARTMENT][slot] = university.getDepartmentName();
+            live.set(slot);
+            liveCount++;
+            slotsById.put(university.getId(), slot);
+            for (int field = 0; field < FIELDS.length; field++) {
+                addPostings(field, values[field][slot], slot);
+                insertSorted(field, slot);
+            }
+            sortedByNameLength.add(new Hit(ids[slot], nameLength(slot), slot));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            if (ready) {
+                versionsById.remove(id);
+            } else {
+                versionsById.put(id, REMOVED);
+            }
+            removeSlot(slotsById.remove(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds universities whose fields contain all non-null filters and returns one page of their ids, ordered by
+     * {@code sortBy} and then id, together with cursors for the neighbouring pages. As for database searches, a
+     * page reached through a cursor always links back to the page before it.
+     */
+    public CursorSlice<Long> search(String name, String country, String departmentName, String sortBy, boolean ascending,
+                                    int page, int size, UniversityCursor cursor) {
+        String[] filters = {name, country, departmentName};
+        boolean backward = cursor != null && cursor.backward();
+        // +1 when reading in sort order, -1 when reading against it
+        int travel = ascending != backward ? 1 : -1;
+        Hit position = cursor == null ? null : new Hit(cursor.id(), parseKey(cursor.value(), sortBy), -1);
+        long skip = cursor == null ? (long) page * size : 0;
+        long limit = skip + size;
+        int misses = (int) Math.min(Integer.MAX_VALUE, WALK_MISSES_PER_HIT * (limit + 1));
+
+        List<Hit> hits = null;
+        lock.readLock().lock();
+        try {
+            List<IntList> lists = postingLists(filters);
+            if (lists == null) {
+                hits = List.of();
+            } else if (sortBy.equals(RELEVANCE)) {
+                hits = walkByRelevance(filters, travel, position, limit, misses);
+                if (hits == null) {
+                    hits = top(candidates(lists, filters), filters, slot -> relevance(slot, filters), false,
+                            travel, position, limit);
+                }
+            } else {
+                if (lists.isEmpty() || lists.get(0).size() > misses) {
+                    hits = walk(filters, sortBy, travel, position, limit, misses);
+                }
+                if (hits == null) {
+                    hits = topBySortKey(candidates(lists, filters), filters, sortBy, travel, position, limit);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (skip >= hits.size()) {
+            return new CursorSlice<>(List.of(), null, null);
+        }
+        int from = (int) skip;
+        int to = (int) Math.min(limit, hits.size());
+        boolean more = hits.size() > to;
+        List<Hit> content = new ArrayList<>(hits.subList(from, to));
+        if (backward) {
+            Collections.reverse(content);
+        }
+        boolean hasPrev = backward ? more : position != null || from > 0;
+        return new CursorSlice<>(content.stream().map(Hit::id).toList(),
+                backward || more ? cursorOf(content.get(content.size() - 1), false) : null,
+                hasPrev ? cursorOf(content.get(0), true) : null);
+    }
+
+    /**
+     * Reads universities in sort order, starting after {@code position}, until {@code limit + 1} of them match.
+     * Returns null once {@code misses} universities did not match, since the matches are then too sparse in this
+     * order and cheaper to find with {@link #topBySortKey}.
+     */
+    private List<Hit> walk(String[] filters, String sortBy, int travel, Hit position, long limit, int misses) {
+        Iterator<Hit> order;
+        if (sortBy.equals("id")) {
+            NavigableMap<Long, Integer> byId = travel > 0 ? slotsById : slotsById.descendingMap();
+            Collection<Integer> slots = (position == null ? byId : byId.tailMap(position.id(), false)).values();
+            order = slots.stream().map(slot -> new Hit(ids[slot], null, slot)).iterator();
+        } else {
+            NavigableSet<Hit> sorted = sortedByField.get(Arrays.asList(FIELDS).indexOf(sortBy));
+            NavigableSet<Hit> byKey = travel > 0 ? sorted : sorted.descendingSet();
+            order = (position == null ? byKey : byKey.tailSet(position, false)).iterator();
+        }
+        List<Hit> hits = new ArrayList<>();
+        while (hits.size() <= limit && order.hasNext()) {
+            Hit hit = order.next();
+            if (matches(hit.slot(), filters)) {
+                hits.add(hit);
+            } else if (--misses == 0) {
+                return null;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * {@link #top} ordered by id or by a field's labels. The labels are read from an array rather than from the
+     * values, so trigram candidates are ranked without touching their strings and only the hits kept for the page
+     * are verified.
+     */
+    private List<Hit> topBySortKey(IntList candidates, String[] filters, String sortBy, int travel, Hit position, long limit) {
+        if (sortBy.equals("id")) {
+            Hit after = position == null ? null : new Hit(position.id(), position.id(), -1);
+            return top(candidates, filters, slot -> ids[slot], candidates != null, travel, after, limit).stream()
+                    .map(hit -> new Hit(hit.id(), null, hit.slot()))
+                    .toList();
+        }
+        int field = Arrays.asList(FIELDS).indexOf(sortBy);
+        long[] fieldLabels = labels[field];
+        Hit after = null;
+        if (position != null) {
+            // The nearest university at or before the cursor, in the direction of travel, stands in for it
+            NavigableSet<Hit> sorted = sortedByField.get(field);
+            Hit bound = travel > 0 ? sorted.floor(position) : sorted.ceiling(position);
+            after = bound == null ? null : new Hit(bound.id(), fieldLabels[bound.slot()], bound.slot());
+        }
+        return top(candidates, filters, slot -> fieldLabels[slot], candidates != null, travel, after, limit).stream()
+                .map(hit -> new Hit(hit.id(), values[field][hit.slot()], hit.slot()))
+                .toList();
+    }
+
+    /**
+     * Checks the candidates, or every slot if there are none, and returns the first {@code limit + 1} matches after
+     * {@code after} in the direction of travel, ordered by {@code key} and then id. A heap bounded to that size holds
+     * the nearest hits found so far; its root is the one furthest along, so it is the one replaced when a nearer hit
+     * turns up. With {@code deferVerification} only the hits left in the heap are verified, and the candidates are
+     * ranked again without those that do not match.
+     */
+    private List<Hit> top(IntList candidates, String[] filters, IntToLongFunction key, boolean deferVerification,
+                          int travel, Hit after, long limit) {
+        Comparator<Hit> byTravel = travel > 0 ? Hit.ORDER : Hit.ORDER.reversed();
+        BitSet rejected = new BitSet();
+        for (int round = 0; ; round++) {
+            // Should several rounds turn up non-matching candidates, verify every candidate before ranking it
+            boolean verifyFirst = !deferVerification || round > 1;
+            PriorityQueue<Hit> window = new PriorityQueue<>((int) Math.min(limit + 1, 1024), byTravel.reversed());
+            int count = candidates == null ? slotCount : candidates.size();
+            for (int i = 0; i < count; i++) {
+                int slot = candidates == null ? i : candidates.get(i);
+                if (!live.get(slot) || rejected.get(slot) || verifyFirst && !matches(slot, filters)) {
+                    continue;
+                }
+                long id = ids[slot];
+                long value = key.applyAsLong(slot);
+                if (after != null && travel * Hit.compare(value, id, (Long) after.key(), after.id()) <= 0) {
+                    continue;
+                }
+                if (window.size() > limit) {
+                    Hit furthest = window.peek();
+                    if (travel * Hit.compare(value, id, (Long) furthest.key(), furthest.id()) >= 0) {
+                        continue;
+                    }
+                    window.poll();
+                }
+                window.add(new Hit(id, value, slot));
+            }
+            List<Hit> hits = new ArrayList<>(window);
+            hits.sort(byTravel);
+            boolean verified = true;
+            if (!verifyFirst) {
+                for (Hit hit : hits) {
+                    if (!matches(hit.slot(), filters)) {
+                        rejected.set(hit.slot());
+                        verified = false;
+                    }
+                }
+            }
+            if (verified) {
+                return hits;
+            }
+        }
+    }
+
+    /**
+     * Reads a page ranked by relevance without scoring every candidate, when at most one filter is scored. Its
+     * matches then fall into three tiers, exact, prefix and infix, each ordered by name length and id. Exact and
+     * prefix matches are a range of the field's sort order and are read from there while the range is short;
+     * otherwise, and for infix matches, the universities are walked by name length. Returns null when several
+     * filters are scored or a walk gives up after {@code misses} non-matching universities.
+     */
+    private List<Hit> walkByRelevance(String[] filters, int travel, Hit position, long limit, int misses) {
+        int scored = -1;
+        for (int field = 0; field < FIELDS.length; field++) {
+            if (filters[field] != null && !filters[field].isEmpty()) {
+                if (scored >= 0) {
+                    return null;
+                }
+                scored = field;
+            }
+        }
+        int lastTier = scored < 0 ? 0 : 2;
+        int fromTier = position != null ? (int) ((Long) position.key() >> NAME_LENGTH_BITS) : travel > 0 ? 0 : lastTier;
+        List<Hit> hits = new ArrayList<>();
+        for (int tier = fromTier; tier >= 0 && tier <= lastTier && hits.size() <= limit; tier += travel) {
+            Hit after = tier == fromTier ? position : null;
+            int needed = (int) (limit + 1 - hits.size());
+            List<Hit> tierHits = tier < 2 && scored >= 0 ? prefixTier(filters, scored, tier, travel, after, needed, misses) : null;
+            if (tierHits == null) {
+                tierHits = walkTier(filters, scored, tier, travel, after, needed, misses);
+            }
+            if (tierHits == null) {
+                return null;
+            }
+            hits.addAll(tierHits);
+        }
+        return hits;
+    }
+
+    /**
+     * The exact (tier 0) or prefix (tier 1) matches of the scored filter, read from the range of the field's sort
+     * order that starts with it. Returns null if the range holds more than {@code maxRange} universities.
+     */
+    private List<Hit> prefixTier(String[] filters, int scored, int tier, int travel, Hit after, int needed, int maxRange) {
+        String filter = filters[scored];
+        List<Hit> hits = new ArrayList<>();
+        int read = 0;
+        for (Hit hit : sortedByField.get(scored).tailSet(new Hit(Long.MIN_VALUE, filter, -1), true)) {
+            String value = (String) hit.key();
+            if (!value.startsWith(filter) || tier == 0 && !value.equals(filter)) {
+                break;
+            }
+            if (++read > maxRange) {
+                return null;
+            }
+            if ((tier == 0 || !value.equals(filter)) && matches(hit.slot(), filters)) {
+                Hit ranked = new Hit(hit.id(), relevanceKey(tier, nameLength(hit.slot())), hit.slot());
+                if (after == null || travel * Hit.ORDER.compare(ranked, after) > 0) {
+                    hits.add(ranked);
+                }
+            }
+        }
+        hits.sort(travel > 0 ? Hit.ORDER : Hit.ORDER.reversed());
+        return hits.size() > needed ? hits.subList(0, needed) : hits;
+    }
+
+    /**
+     * The first {@code needed} matches of one relevance tier, walking the universities by name length from
+     * {@code after}. Returns null once {@code misses} universities did not belong to the tier.
+     */
+    private List<Hit> walkTier(String[] filters, int scored, int tier, int travel, Hit after, int needed, int misses) {
+        NavigableSet<Hit> order = travel > 0 ? sortedByNameLength : sortedByNameLength.descendingSet();
+        if (after != null) {
+            int length = (int) ((Long) after.key() & MAX_NAME_LENGTH);
+            order = order.tailSet(new Hit(after.id(), length, -1), false);
+        }
+        List<Hit> hits = new ArrayList<>();
+        for (Iterator<Hit> iterator = order.iterator(); hits.size() < needed && iterator.hasNext(); ) {
+            Hit hit = iterator.next();
+            int slot = hit.slot();
+            if (matches(slot, filters) && (scored < 0 || tier(values[scored][slot], filters[scored]) == tier)) {
+                hits.add(new Hit(hit.id(), relevanceKey(tier, (Integer) hit.key()), slot));
+            } else if (--misses == 0) {
+                return null;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * For every filter long enough to have trigrams, the posting list of its rarest trigram, shortest first; null if
+     * one of the trigrams occurs nowhere, so nothing can match. The other trigrams of a filter seldom rule out more
+     * than its rarest one, and intersecting with them would cost a pass over each, so the few slots they would have
+     * ruled out are left to be verified.
+     */
+    private List<IntList> postingLists(String[] filters) {
+        List<IntList> lists = new ArrayList<>();
+        for (int field = 0; field < FIELDS.length; field++) {
+            String filter = filters[field];
+            if (filter == null || filter.length() < 3) {
+                continue;
+            }
+            IntList rarest = null;
+            for (long key : trigrams(field, filter)) {
+                IntList list = postings.get(key);
+                if (list == null) {
+                    return null;
+                }
+                if (rarest == null || list.size() < rarest.size()) {
+                    rarest = list;
+                }
+            }
+            lists.add(rarest);
+        }
+        lists.sort(Comparator.comparingInt(IntList::size));
+        return lists;
+    }
+
+    /**
+     * The slots that can match: the intersection of the rarest trigram posting lists and, for every filter too short
+     * for trigrams, of the slots holding a trigram or a short value that contains it. Some of them may not match in
+     * the end. Null if no filter narrows the search to fewer slots than the index holds.
+     */
+    private IntList candidates(List<IntList> trigramLists, String[] filters) {
+        List<IntList> lists = new ArrayList<>(trigramLists);
+        for (int field = 0; field < FIELDS.length; field++) {
+            String filter = filters[field];
+            if (filter != null && !filter.isEmpty() && filter.length() < 3) {
+                IntList containing = containing(field, filter);
+                if (containing != null) {
+                    lists.add(containing);
+                }
+            }
+        }
+        if (lists.isEmpty()) {
+            return null;
+        }
+        lists.sort(Comparator.comparingInt(IntList::size));
+        return intersect(lists);
+    }
+
+    /**
+     * The slots whose value in the field may contain a one- or two-character filter, or null if listing them would
+     * cost more than checking every slot.
+     */
+    private IntList containing(int field, String filter) {
+        Set<Long> trigrams = trigramsByGram.getOrDefault(gram(field, filter), Set.of());
+        List<IntList> lists = new ArrayList<>();
+        lists.add(shortValues.get(field));
+        long total = shortValues.get(field).size();
+        for (long trigram : trigrams) {
+            IntList list = postings.get(trigram);
+            lists.add(list);
+            total += list.size();
+        }
+        if (total > liveCount) {
+            return null;
+        }
+        BitSet slots = new BitSet(slotCount);
+        for (IntList list : lists) {
+            for (int i = 0; i < list.size(); i++) {
+                slots.set(list.get(i));
+            }
+        }
+        IntList union = new IntList(slots.cardinality());
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            union.add(slot);
+        }
+        return union;
+    }
+
+    /**
+     * Intersects sorted posting lists in one pass over each, galloping through the longer ones. A single list is
+     * returned as it is rather than copied.
+     */
+    private static IntList intersect(List<IntList> lists) {
+        if (lists.size() == 1) {
+            return lists.get(0);
+        }
+        IntList smallest = lists.get(0);
+        IntList result = new IntList();
+        int[] positions = new int[lists.size()];
+        candidates:
+        for (int i = 0; i < smallest.size(); i++) {
+            int slot = smallest.get(i);
+            for (int l = 1; l < lists.size(); l++) {
+                IntList list = lists.get(l);
+                positions[l] = list.seek(slot, positions[l]);
+                if (positions[l] == list.size()) {
+                    break candidates;
+                }
+                if (list.get(positions[l]) != slot) {
+                    continue candidates;
+                }
+            }
+            result.add(slot);
+        }
+        return result;
+    }
+
+    private boolean matches(int slot, String[] filters) {
+        for (int field = 0; field < FIELDS.length; field++) {
+            if (filters[field] != null && (values[field][slot] == null || !values[field][slot].contains(filters[field]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long relevance(int slot, String[] filters) {
+        int score = 0;
+        for (int field = 0; field < FIELDS.length; field++) {
+            String filter = filters[field];
+            if (filter != null && !filter.isEmpty()) {
+                score += tier(values[field][slot], filter);
+            }
+        }
+        return relevanceKey(score, nameLength(slot));
+    }
+
+    /**
+     * 0 for an exact match of the filter, 1 for a prefix match and 2 for any other match.
+     */
+    private static int tier(String value, String filter) {
+        return value.equals(filter) ? 0 : value.startsWith(filter) ? 1 : 2;
+    }
+
+    private static long relevanceKey(int score, int nameLength) {
+        return ((long) score << NAME_LENGTH_BITS) | nameLength;
+    }
+
+    private int nameLength(int slot) {
+        String name = values[NAME][slot];
+        return Math.min(name == null ? 0 : name.length(), MAX_NAME_LENGTH);
+    }
+
+    private static Object parseKey(String value, String sortBy) {
+        if (value == null || sortBy.equals("id")) {
+            return null;
+        }
+        return sortBy.equals(RELEVANCE) ? Long.valueOf(value) : value;
+    }
+
+    private static String cursorOf(Hit hit, boolean backward) {
+        return new UniversityCursor(hit.key() == null ? null : hit.key().toString(), hit.id(), backward).encode();
+    }
+
+    private void addPostings(int field, String value, int slot) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        // Slots are allocated in increasing order, so appending keeps every list sorted
+        if (value.length() < 3) {
+            shortValues.get(field).add(slot);
+            return;
+        }
+        for (long key : trigrams(field, value)) {
+            IntList list = postings.get(key);
+            if (list == null) {
+                list = new IntList();
+                postings.put(key, list);
+                addGrams(field, key);
+            }
+            list.add(slot);
+        }
+    }
+
+    private void addGrams(int field, long trigram) {
+        String chars = "" + (char) (trigram >>> 32) + (char) (trigram >>> 16) + (char) trigram;
+        for (int start = 0; start < chars.length(); start++) {
+            for (int end = start + 1; end <= Math.min(start + 2, chars.length()); end++) {
+                trigramsByGram.computeIfAbsent(gram(field, chars.substring(start, end)), key -> new HashSet<>()).add(trigram);
+            }
+        }
+    }
+
+    private static long gram(int field, String gram) {
+        // A marker bit keeps one-character grams apart from two-character grams starting with '\0'
+        return gram.length() == 1
+                ? ((long) field << 48) | (1L << 40) | gram.charAt(0)
+                : ((long) field << 48) | ((long) gram.charAt(0) << 16) | gram.charAt(1);
+    }
+
+    /**
+     * Adds a slot to the field's sort order and labels it between its neighbours, or spreads the labels around it
+     * when there is no room left between them.
+     */
+    private void insertSorted(int field, int slot) {
+        NavigableSet<Hit> sorted = sortedByField.get(field);
+        Hit hit = new Hit(ids[slot], values[field][slot], slot);
+        sorted.add(hit);
+        Hit lower = sorted.lower(hit);
+        Hit higher = sorted.higher(hit);
+        long[] fieldLabels = labels[field];
+        if (lower == null && higher == null) {
+            fieldLabels[slot] = 0;
+        } else if (higher == null && fieldLabels[lower.slot()] < Long.MAX_VALUE - LABEL_SPACING) {
+            fieldLabels[slot] = fieldLabels[lower.slot()] + LABEL_SPACING;
+        } else if (lower == null && fieldLabels[higher.slot()] > Long.MIN_VALUE + LABEL_SPACING) {
+            fieldLabels[slot] = fieldLabels[higher.slot()] - LABEL_SPACING;
+        } else if (lower != null && higher != null
+                && Long.compareUnsigned(fieldLabels[higher.slot()] - fieldLabels[lower.slot()], 1) > 0) {
+            fieldLabels[slot] = fieldLabels[lower.slot()] + ((fieldLabels[higher.slot()] - fieldLabels[lower.slot()]) >>> 1);
+        } else {
+            relabelAround(field, hit);
+        }
+    }
+
+    /**
+     * Spreads the labels of the universities around {@code hit} evenly between the labels of the two universities
+     * just outside them, widening the range until the new gaps are at least {@link #LABEL_SPACING}, or the range
+     * covers the whole field. Label differences are taken as unsigned, since they can exceed {@code Long.MAX_VALUE}.
+     */
+    private void relabelAround(int field, Hit hit) {
+        NavigableSet<Hit> sorted = sortedByField.get(field);
+        long[] fieldLabels = labels[field];
+        for (int reach = 32; ; reach *= 2) {
+            Iterator<Hit> down = sorted.headSet(hit, false).descendingIterator();
+            Iterator<Hit> up = sorted.tailSet(hit, false).iterator();
+            List<Hit> range = new ArrayList<>();
+            for (int i = 0; i < reach && down.hasNext(); i++) {
+                range.add(down.next());
+            }
+            Collections.reverse(range);
+            Hit below = down.hasNext() ? down.next() : null;
+            range.add(hit);
+            for (int i = 0; i < reach && up.hasNext(); i++) {
+                range.add(up.next());
+            }
+            Hit above = up.hasNext() ? up.next() : null;
+            long low = below == null ? Long.MIN_VALUE : fieldLabels[below.slot()];
+            long high = above == null ? Long.MAX_VALUE : fieldLabels[above.slot()];
+            long gap = Long.divideUnsigned(high - low, range.size() + 1);
+            if (Long.compareUnsigned(gap, LABEL_SPACING) >= 0 || below == null && above == null) {
+                for (int i = 0; i < range.size(); i++) {
+                    fieldLabels[range.get(i).slot()] = low + gap * (i + 1);
+                }
+                return;
+            }
+        }
+    }
+
+    private void relabel(int field) {
+        long label = 0;
+        for (Hit hit : sortedByField.get(field)) {
+            labels[field][hit.slot()] = label;
+            label += LABEL_SPACING;
+        }
+    }
+
+    private static long[] trigrams(int field, String value) {
+        long[] keys = new long[value.length() - 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) field << 48) | ((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2);
+        }
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, distinct);
+    }
+
+    private void removeSlot(Integer slot) {
+        if (slot == null) {
+            return;
+        }
+        for (int field = 0; field < FIELDS.length; field++) {
+            sortedByField.get(field).remove(new Hit(ids[slot], values[field][slot], slot));
+        }
+        sortedByNameLength.remove(new Hit(ids[slot], nameLength(slot), slot));
+        live.clear(slot);
+        liveCount--;
+        if (slotCount >= MIN_COMPACT_SLOTS && liveCount < slotCount / 2) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        long[] oldIds = ids;
+        String[][] oldValues = values;
+        int oldCount = slotCount;
+        BitSet oldLive = (BitSet) live.clone();
+
+        postings.clear();
+        trigramsByGram.clear();
+        shortValues.forEach(IntList::clear);
+        slotsById.clear();
+        sortedByField.forEach(Set::clear);
+        sortedByNameLength.clear();
+        live.clear();
+        ids = new long[Math.max(1024, oldLive.cardinality() * 2)];
+        values = new String[FIELDS.length][ids.length];
+        labels = new long[FIELDS.length][ids.length];
+        slotCount = 0;
+        for (int slot = oldLive.nextSetBit(0); slot >= 0 && slot < oldCount; slot = oldLive.nextSetBit(slot + 1)) {
+            int newSlot = slotCount++;
+            ids[newSlot] = oldIds[slot];
+            for (int field = 0; field < FIELDS.length; field++) {
+                values[field][newSlot] = oldValues[field][slot];
+                addPostings(field, values[field][newSlot], newSlot);
+                sortedByField.get(field).add(new Hit(ids[newSlot], values[field][newSlot], newSlot));
+            }
+            sortedByNameLength.add(new Hit(ids[newSlot], nameLength(newSlot), newSlot));
+            live.set(newSlot);
+            slotsById.put(ids[newSlot], newSlot);
+        }
+        for (int field = 0; field < FIELDS.length; field++) {
+            relabel(field);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int newLength = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, newLength);
+            for (int field = 0; field < FIELDS.length; field++) {
+                values[field] = Arrays.copyOf(values[field], newLength);
+                labels[field] = Arrays.copyOf(labels[field], newLength);
+            }
+        }
+    }
+
+    /**
+     * A university at a position in one sort order. The slot is -1 for positions taken from a cursor.
+     */
+    private record Hit(long id, Object key, int slot) {
+
+        /** Ascending by key with nulls first, then by id, mirroring the database ordering; the slot is ignored. */
+        static final Comparator<Hit> ORDER = (a, b) -> {
+            int byKey = compareKeys(a.key, b.key);
+            return byKey != 0 ? byKey : Long.compare(a.id, b.id);
+        };
+
+        static int compare(long key, long id, long otherKey, long otherId) {
+            int byKey = Long.compare(key, otherKey);
+            return byKey != 0 ? byKey : Long.compare(id, otherId);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static int compareKeys(Object a, Object b) {
+            if (a == null || b == null) {
+                return a == b ? 0 : a == null ? -1 : 1;
+            }
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+    }
+
+    /**
+     * Growable, sorted list of primitive slot numbers.
+     */
+    private static final class IntList {
+
+        private int[] data;
+        private int size;
+
+        IntList() {
+            this(4);
+        }
+
+        IntList(int capacity) {
+            data = new int[Math.max(capacity, 1)];
+        }
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int get(int index) {
+            return data[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        /**
+         * The index of the first value not less than {@code value}, searching from {@code from} in steps that double
+         * until they pass it.
+         */
+        int seek(int value, int from) {
+            // Lists of similar density mostly continue right where the last seek stopped
+            if (from >= size || data[from] >= value) {
+                return from;
+            }
+            if (from + 1 >= size || data[from + 1] >= value) {
+                return from + 1;
+            }
+            int low = from;
+            int high = from;
+            int step = 1;
+            while (high < size && data[high] < value) {
+                low = high + 1;
+                high = from + step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(data, low, Math.min(high, size), value);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
@@ -1,28 +1,84 @@
 package com.example.partneruniversities.service;
 
+import com.example.partneruniversities.cache.ResponseCache;
 import com.example.partneruniversities.model.Module;
 import com.example.partneruniversities.model.University;
+import com.example.partneruniversities.repository.SemesterStartRange;
 import com.example.partneruniversities.repository.UniversityRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
+@Timed(value = "service.invocations", histogram = true)
 public class UniversityService {
 
+    private static final int INDEX_BATCH_SIZE = 1000;
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
     private final UniversityRepository universityRepository;
     private final ModuleService moduleService;
+    private final UniversitySearchIndex searchIndex;
+    private final ResponseCache responseCache;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
 
-    public UniversityService(UniversityRepository universityRepository, ModuleService moduleService) {
+    public UniversityService(UniversityRepository universityRepository, ModuleService moduleService,
+                             UniversitySearchIndex searchIndex, ResponseCache responseCache, EntityManager entityManager,
+                             ObjectMapper objectMapper) {
         this.universityRepository = universityRepository;
         this.moduleService = moduleService;
+        this.searchIndex = searchIndex;
+        this.responseCache = responseCache;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Loads every university into the search index once the application has started. Writes committed meanwhile
+     * update the index as well; it keeps whichever version of a university is newer, so a batch read before such a
+     * write does not overwrite it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSearchIndex() {
+        Long afterId = null;
+        List<University> batch;
+        do {
+            batch = universityRepository.findSeek(null, null, null, SemesterStartRange.UNBOUNDED, "id", true, null, afterId, INDEX_BATCH_SIZE);
+            batch.forEach(searchIndex::put);
+            afterId = batch.isEmpty() ? afterId : batch.get(batch.size() - 1).getId();
+        } while (batch.size() == INDEX_BATCH_SIZE);
+        searchIndex.markReady();
     }
+
     public Page<University> findAll(Pageable pageable) {
         return universityRepository.findAll(pageable);
     }
@@ -31,25 +87,319 @@ public class UniversityService {
         return universityRepository.findById(id);
     }
 
+    public Optional<Long> findVersion(Long id) {
+        return universityRepository.findVersionById(id);
+    }
+
+    public String aggregateVersion() {
+        return universityRepository.aggregateVersion();
+    }
+
     @Transactional
     public University save(University university) {
-        // Ensure all modules are properly linked to the university
+        boolean existing = university.getId() != null;
+        List<Long> previousModuleIds = existing ? moduleService.getModuleIdsByUniversityId(university.getId()) : List.of();
+        // Ensure all modules are properly linked to the university; they are saved with it through the cascade
         for (Module module : university.getModules()) {
             module.setUniversity(university);
-            moduleService.save(module);
         }
-        return universityRepository.save(university);
+        University savedUniversity = universityRepository.save(university);
+        if (existing) {
+            // The representation embeds the modules, so any replacement of them is a new version of the university
+            entityManager.lock(savedUniversity, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        }
+        afterSave(savedUniversity, previousModuleIds);
+        return savedUniversity;
+    }
+
+    /**
+     * Replaces the properties and modules of an existing university. The modules are reconciled with the stored
+     * ones rather than replaced: an incoming module is matched to a stored module by id, or failing that by name
+     * and semester, and only the modules that were added, changed or left out are inserted, updated or deleted.
+     * Ids of modules that belong to another university are ignored. Returns empty if the university does not exist.
+     */
+    @Transactional
+    public Optional<University> update(Long id, University details) {
+        return universityRepository.findById(id).map(university -> update(university, details));
+    }
+
+    /**
+     * Applies a JSON Merge Patch to an existing university. A {@code modules} member replaces the list of modules,
+     * which is then reconciled like in {@link #update}. Returns empty if the university does not exist.
+     *
+     * @throws IllegalArgumentException if the patched document is not a valid university
+     */
+    @Transactional
+    public Optional<University> patch(Long id, JsonNode patch) {
+        return universityRepository.findById(id).map(university -> {
+            University details;
+            try {
+                details = objectMapper.treeToValue(JsonMergePatch.apply(objectMapper.valueToTree(university), patch), University.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Invalid patch: " + e.getOriginalMessage(), e);
+            }
+            return update(university, details);
+        });
+    }
+
+    private University update(University university, University details) {
+        List<Long> previousModuleIds = university.getModules().stream().map(Module::getId).collect(Collectors.toList());
+        university.setName(details.getName());
+        university.setCountry(details.getCountry());
+        university.setDepartmentName(details.getDepartmentName());
+        university.setDepartmentUrl(details.getDepartmentUrl());
+        university.setContactPerson(details.getContactPerson());
+        university.setMaxOutgoingStudents(details.getMaxOutgoingStudents());
+        university.setMaxIncomingStudents(details.getMaxIncomingStudents());
+        university.setNextSpringSemesterStart(details.getNextSpringSemesterStart());
+        university.setNextAutumnSemesterStart(details.getNextAutumnSemesterStart());
+        if (reconcileModules(university, details.getModules() == null ? List.of() : details.getModules())) {
+            // The representation embeds the modules, so a change to them is a new version of the university
+            entityManager.lock(university, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        }
+        afterSave(university, previousModuleIds);
+        return university;
+    }
+
+    /**
+     * Brings the stored modules of {@code university} in line with {@code incoming}, changing only what differs.
+     * Returns whether any module was added, changed or removed.
+     */
+    private static boolean reconcileModules(University university, List<Module> incoming) {
+        Map<Long, Module> byId = new HashMap<>();
+        Map<String, Deque<Module>> byNaturalKey = new HashMap<>();
+        for (Module module : university.getModules()) {
+            byId.put(module.getId(), module);
+            byNaturalKey.computeIfAbsent(naturalKey(module), key -> new ArrayDeque<>()).add(module);
+        }
+
+        boolean changed = false;
+        List<Module> withoutMatchingId = new ArrayList<>();
+        for (Module module : incoming) {
+            Module existing = module.getId() == null ? null : byId.remove(module.getId());
+            if (existing == null) {
+                withoutMatchingId.add(module);
+            } else {
+                byNaturalKey.get(naturalKey(existing)).remove(existing);
+                changed |= copyModule(module, existing);
+            }
+        }
+        // A module sent without its id takes the place of a stored one with the same name and semester, so
+        // resubmitting a module without its id does not replace it
+        List<Module> added = new ArrayList<>();
+        for (Module module : withoutMatchingId) {
+            Deque<Module> candidates = byNaturalKey.get(naturalKey(module));
+            Module existing = candidates == null ? null : candidates.poll();
+            if (existing == null) {
+                Module created = new Module();
+                copyModule(module, created);
+                created.setUniversity(university);
+                added.add(created);
+            } else {
+                byId.remove(existing.getId());
+                changed |= copyModule(module, existing);
+            }
+        }
+
+        // Whatever is left in byId was not sent and is deleted through orphan removal
+        university.getModules().removeAll(byId.values());
+        university.getModules().addAll(added);
+        return changed || !added.isEmpty() || !byId.isEmpty();
+    }
+
+    private static String naturalKey(Module module) {
+        return module.getSemester() + "|" + module.getName();
+    }
+
+    private static boolean copyModule(Module from, Module to) {
+        boolean changed = !Objects.equals(from.getName(), to.getName())
+                || from.getSemester() != to.getSemester()
+                || from.getCreditPoints() != to.getCreditPoints();
+        to.setName(from.getName());
+        to.setSemester(from.getSemester());
+        to.setCreditPoints(from.getCreditPoints());
+        return changed;
+    }
+
+    private void afterSave(University university, List<Long> previousModuleIds) {
+        List<Long> moduleIds = university.getModules().stream().map(Module::getId).collect(Collectors.toList());
+        afterCommit(() -> {
+            searchIndex.put(university);
+            responseCache.invalidate(ResponseCache.UNIVERSITIES, university.getId());
+            responseCache.invalidate(ResponseCache.MODULES, previousModuleIds);
+            responseCache.invalidate(ResponseCache.MODULES, moduleIds);
+        });
     }
 
     @Transactional
     public void deleteById(Long id) {
-        // Delete associated modules first to avoid constraint violations
-        moduleService.deleteModulesByUniversityId(id);
-        universityRepository.deleteById(id);
+        deleteAllById(List.of(id));
+    }
+
+    /**
+     * Deletes every university in {@code country}, with its modules, in one transaction.
+     */
+    @Transactional
+    public BulkDeleteReport deleteByCountry(String country) {
+        return deleteAllById(universityRepository.findIdsByCountry(country));
+    }
+
+    /**
+     * Deletes the given universities and their modules in one transaction with set-based statements: per chunk of
+     * {@value #DELETE_CHUNK_SIZE} ids, one query for the module ids (to invalidate their cached representations),
+     * one delete for the modules and one for the universities. Nothing is loaded into the persistence context.
+     * Unknown ids are ignored.
+     */
+    @Transactional
+    public BulkDeleteReport deleteAllById(Collection<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        List<Long> moduleIds = new ArrayList<>();
+        long universitiesDeleted = 0;
+        long modulesDeleted = 0;
+        for (int from = 0; from < distinctIds.size(); from += DELETE_CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + DELETE_CHUNK_SIZE, distinctIds.size()));
+            moduleIds.addAll(moduleService.getModuleIdsByUniversityIds(chunk));
+            // Modules first, as they reference the universities
+            modulesDeleted += moduleService.deleteModulesByUniversityIds(chunk);
+            universitiesDeleted += universityRepository.deleteByIdIn(chunk);
+        }
+        afterCommit(() -> {
+            distinctIds.forEach(searchIndex::remove);
+            responseCache.invalidate(ResponseCache.UNIVERSITIES, distinctIds);
+            responseCache.invalidate(ResponseCache.MODULES, moduleIds);
+        });
+        return new BulkDeleteReport(universitiesDeleted, modulesDeleted);
+    }
+
+    /**
+     * Lists universities in id order. A cursor takes precedence over the page number; without either the
+     * first page is returned. No count query is issued in any mode.
+     */
+    @Transactional(readOnly = true)
+    public CursorSlice<University> findAll(int page, int size, String cursor, boolean includeModules) {
+        return withModules(slice(null, null, null, SemesterStartRange.UNBOUNDED, page, size, "id", true, cursor), includeModules);
+    }
+
+    /**
+     * Searches by substring on name, country and department name, and by range on the semester starts. Answered from
+     * the in-memory search index when it holds the requested sort key (including {@code relevance}) and no range is
+     * given, otherwise from the database, where the ranges are index range scans. Sorting by {@code relevance}
+     * throws {@link IllegalStateException} while the index is still being built.
+     */
+    @Transactional(readOnly = true)
+    public CursorSlice<University> searchUniversities(String name, String country, String departmentName, SemesterStartRange semesterStarts, int page, int size, String sortBy, String direction, String cursor, boolean includeModules) {
+        if (!direction.equalsIgnoreCase("asc") && !direction.equalsIgnoreCase("desc")) {
+            throw new IllegalArgumentException("direction must be asc or desc");
+        }
+        boolean ascending = direction.equalsIgnoreCase("asc");
+        if (!semesterStarts.isUnbounded() || !searchIndex.supports(sortBy)) {
+            if (sortBy.equals(UniversitySearchIndex.RELEVANCE)) {
+                // Only the index can rank by relevance, and the database has no such property to fall back on
+                if (!semesterStarts.isUnbounded()) {
+                    throw new IllegalArgumentException("Sorting by relevance cannot be combined with semester start ranges");
+                }
+                throw new IllegalStateException("The search index is still being built, sorting by relevance is not available yet");
+            }
+            return withModules(slice(name, country, departmentName, semesterStarts, page, size, sortBy, ascending, cursor), includeModules);
+        }
+        UniversityCursor position = cursor == null ? null : UniversityCursor.decode(cursor);
+        CursorSlice<Long> ids = searchIndex.search(name, country, departmentName, sortBy, ascending, page, size, position);
+        if (ids.content().isEmpty()) {
+            return new CursorSlice<>(List.of(), ids.nextCursor(), ids.prevCursor());
+        }
+        List<University> rows = includeModules
+                ? universityRepository.findWithModulesByIdIn(ids.content())
+                : universityRepository.findAllById(ids.content());
+        Map<Long, University> universitiesById = rows.stream()
+                .collect(Collectors.toMap(University::getId, Function.identity()));
+        List<University> content = ids.content().stream()
+                .map(universitiesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (!includeModules) {
+            content.forEach(this::withoutModules);
+        }
+        return new CursorSlice<>(content, ids.nextCursor(), ids.prevCursor());
+    }
+
+    /**
+     * Loads the modules of a whole page with one query, or drops them from the representation, so that
+     * serializing the page never initializes the collections one university at a time.
+     */
+    private CursorSlice<University> withModules(CursorSlice<University> slice, boolean includeModules) {
+        if (slice.content().isEmpty()) {
+            return slice;
+        }
+        if (includeModules) {
+            // The page is already managed; this query initializes all of its module collections at once
+            universityRepository.findWithModulesByIdIn(slice.content().stream().map(University::getId).collect(Collectors.toList()));
+        } else {
+            slice.content().forEach(this::withoutModules);
+        }
+        return slice;
+    }
+
+    private void withoutModules(University university) {
+        entityManager.detach(university);
+        university.setModules(null);
+    }
+
+    private CursorSlice<University> slice(String name, String country, String departmentName, SemesterStartRange semesterStarts,
+                                          int page, int size, String sortBy, boolean ascending, String cursor) {
+        if (cursor == null && page > 0) {
+            if (!semesterStarts.isUnbounded()) {
+                throw new IllegalArgumentException("Searches by semester start are paged with cursors, not page numbers");
+            }
+            // Legacy offset addressing, still answered as a slice so no count(*) is run
+            Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+            Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy).and(Sort.by(direction, "id")));
+            Slice<University> offsetSlice = name == null
+                    ? universityRepository.findAllBy(pageable)
+                    : size <= UniversityRepository.MAX_CACHED_PAGE_SIZE
+                    ? universityRepository.findByNameContainingAndCountryContainingAndDepartmentNameContaining(name, country, departmentName, pageable)
+                    : universityRepository.readByNameContainingAndCountryContainingAndDepartmentNameContaining(name, country, departmentName, pageable);
+            List<University> content = offsetSlice.getContent();
+            if (content.isEmpty()) {
+                return new CursorSlice<>(content, null, null);
+            }
+            return new CursorSlice<>(content,
+                    offsetSlice.hasNext() ? cursorOf(content.get(content.size() - 1), sortBy, false) : null,
+                    cursorOf(content.get(0), sortBy, true));
+        }
+
+        UniversityCursor position = cursor == null ? null : UniversityCursor.decode(cursor);
+        boolean backward = position != null && position.backward();
+        List<University> rows = universityRepository.findSeek(name, country, departmentName, semesterStarts, sortBy, ascending != backward,
+                position == null ? null : position.value(), position == null ? null : position.id(), size + 1);
+
+        boolean more = rows.size() > size;
+        List<University> content = new ArrayList<>(rows.subList(0, Math.min(size, rows.size())));
+        if (content.isEmpty()) {
+            return new CursorSlice<>(content, null, null);
+        }
+        if (backward) {
+            Collections.reverse(content);
+        }
+        String next = backward || more ? cursorOf(content.get(content.size() - 1), sortBy, false) : null;
+        String prev = (backward ? more : position != null) ? cursorOf(content.get(0), sortBy, true) : null;
+        return new CursorSlice<>(content, next, prev);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
-    public Page<University> searchUniversities(String name, String country, String departmentName, int page, int size, String sortBy, String direction) {
-        Pageable pageable = PageRequest.of(page, size, direction.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending());
-        return universityRepository.findByNameContainingAndCountryContainingAndDepartmentNameContaining(name, country, departmentName, pageable);
+    private static String cursorOf(University university, String sortBy, boolean backward) {
+        Object value = sortBy.equals("id") ? null : new BeanWrapperImpl(university).getPropertyValue(sortBy);
+        return new UniversityCursor(value == null ? null : value.toString(), university.getId(), backward).encode();
     }
 }
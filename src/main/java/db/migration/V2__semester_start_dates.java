@@ -0,0 +1,117 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * The next semester starts become dates. Every stored string is read the way the API reads these fields: an ISO date
+ * ({@code yyyy-MM-dd}), or an ISO date-time cut to its date, and an empty string as null. A value that cannot be
+ * read, such as {@code 2023-02-30}, is cleared and kept in {@code discarded_semester_start}, so it can still be
+ * corrected by hand. A Java migration because H2 has no way to test in SQL whether a string is a valid date, and a
+ * single invalid one would fail the conversion of the whole column.
+ */
+public class V2__semester_start_dates extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    /** Columns by the semester recorded for their discarded values. */
+    private static final Map<String, String> COLUMNS = Map.of(
+            "spring", "next_spring_semester_start",
+            "autumn", "next_autumn_semester_start");
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE discarded_semester_start ("
+                    + "university_id BIGINT NOT NULL, "
+                    + "semester VARCHAR(6) NOT NULL, "
+                    + "discarded_value VARCHAR(255) NOT NULL, "
+                    + "CONSTRAINT pk_discarded_semester_start PRIMARY KEY (university_id, semester))");
+        }
+        for (Map.Entry<String, String> column : COLUMNS.entrySet()) {
+            normalize(connection, column.getKey(), column.getValue());
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String column : COLUMNS.values()) {
+                statement.execute("ALTER TABLE university ALTER COLUMN " + column + " SET DATA TYPE DATE");
+            }
+            // Range filters of /universities/search (springStartFrom/To, autumnStartFrom/To), and sorting by these columns
+            statement.execute("CREATE INDEX idx_university_next_spring_semester_start ON university (next_spring_semester_start, id)");
+            statement.execute("CREATE INDEX idx_university_next_autumn_semester_start ON university (next_autumn_semester_start, id)");
+        }
+    }
+
+    /**
+     * Rewrites every value of the column that is not an ISO date yet as one, or clears it and records it as discarded
+     * when it cannot be read as a date.
+     */
+    private static void normalize(Connection connection, String semester, String column) throws SQLException {
+        try (Statement select = connection.createStatement();
+             PreparedStatement update = connection.prepareStatement("UPDATE university SET " + column + " = ? WHERE id = ?");
+             PreparedStatement discard = connection.prepareStatement(
+                     "INSERT INTO discarded_semester_start (university_id, semester, discarded_value) VALUES (?, ?, ?)");
+             ResultSet rows = select.executeQuery("SELECT id, " + column + " FROM university WHERE " + column + " IS NOT NULL")) {
+            int pending = 0;
+            while (rows.next()) {
+                long id = rows.getLong(1);
+                String value = rows.getString(2);
+                String date;
+                try {
+                    LocalDate parsed = read(value);
+                    date = parsed == null ? null : parsed.toString();
+                } catch (DateTimeParseException e) {
+                    discard.setLong(1, id);
+                    discard.setString(2, semester);
+                    discard.setString(3, value);
+                    discard.addBatch();
+                    date = null;
+                }
+                if (value.equals(date)) {
+                    continue;
+                }
+                update.setString(1, date);
+                update.setLong(2, id);
+                update.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    discard.executeBatch();
+                    update.executeBatch();
+                    pending = 0;
+                }
+            }
+            discard.executeBatch();
+            update.executeBatch();
+        }
+    }
+
+    /**
+     * Reads a stored value like Jackson's lenient {@code LocalDate} deserializer reads a request: surrounding
+     * whitespace is ignored, an empty string is null, a date-time is cut to its date and a UTC date-time ending in
+     * {@code Z} to its date in UTC. Dates that do not exist, such as {@code 2023-02-30}, are rejected.
+     */
+    private static LocalDate read(String value) {
+        String text = value.trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        if (text.length() > 10 && text.charAt(10) == 'T') {
+            return text.endsWith("Z")
+                    ? LocalDate.ofInstant(Instant.parse(text), ZoneOffset.UTC)
+                    : LocalDateTime.parse(text, DateTimeFormatter.ISO_LOCAL_DATE_TIME).toLocalDate();
+        }
+        return LocalDate.parse(text, DateTimeFormatter.ISO_LOCAL_DATE);
+    }
+}
@@ -0,0 +1,46 @@
+-- Catalog schema. Applied by Flyway on startup; Hibernate only validates the entities against it
+-- (spring.jpa.hibernate.ddl-auto=validate). Never edit a migration that has been released, add the next version.
+
+CREATE SEQUENCE university_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE module_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE university (
+    id                         BIGINT       NOT NULL,
+    name                       VARCHAR(255),
+    country                    VARCHAR(255),
+    department_name            VARCHAR(255),
+    department_url             VARCHAR(255),
+    contact_person             VARCHAR(255),
+    max_outgoing_students      INTEGER      NOT NULL,
+    max_incoming_students      INTEGER      NOT NULL,
+    next_spring_semester_start VARCHAR(255),
+    next_autumn_semester_start VARCHAR(255),
+    version                    BIGINT       NOT NULL,
+    CONSTRAINT pk_university PRIMARY KEY (id)
+);
+
+CREATE TABLE module (
+    id            BIGINT       NOT NULL,
+    university_id BIGINT       NOT NULL,
+    name          VARCHAR(255),
+    semester      INTEGER      NOT NULL,
+    credit_points INTEGER      NOT NULL,
+    version       BIGINT       NOT NULL,
+    CONSTRAINT pk_module PRIMARY KEY (id)
+);
+
+-- Modules of a university: GET /universities/{id}/modules, the fetch join of the batch reads and the bulk deletes.
+-- Created before the foreign key so the constraint uses it instead of an index of its own.
+CREATE INDEX idx_module_university_id ON module (university_id);
+
+ALTER TABLE module ADD CONSTRAINT fk_module_university FOREIGN KEY (university_id) REFERENCES university (id);
+
+-- Keyset pages of GET /universities and /universities/search sort by one of these columns and then by id, in either
+-- direction. The country index also serves DELETE /universities?country=. The contains filters of the search
+-- ('%...%') cannot seek on a b-tree, they are evaluated while walking the index in sort order.
+CREATE INDEX idx_university_name ON university (name, id);
+CREATE INDEX idx_university_name_desc ON university (name DESC, id DESC);
+CREATE INDEX idx_university_country ON university (country, id);
+CREATE INDEX idx_university_country_desc ON university (country DESC, id DESC);
+CREATE INDEX idx_university_department_name ON university (department_name, id);
+CREATE INDEX idx_university_department_name_desc ON university (department_name DESC, id DESC);
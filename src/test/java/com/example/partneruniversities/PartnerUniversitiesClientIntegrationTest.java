@@ -1,19 +1,75 @@
 package com.example.partneruniversities;
 
+import com.example.partneruniversities.cache.CachedResponse;
+import com.example.partneruniversities.cache.RequestCoalescer;
+import com.example.partneruniversities.cache.ResponseCache;
+import com.example.partneruniversities.client.BatchFetchResult;
+import com.example.partneruniversities.client.CacheMetrics;
+import com.example.partneruniversities.client.ClientResponseCache;
+import com.example.partneruniversities.client.PartnerUniversitiesAsyncClient;
 import com.example.partneruniversities.client.PartnerUniversitiesClient;
+import com.example.partneruniversities.metrics.SqlStatementCounter;
 import com.example.partneruniversities.model.Module;
 import com.example.partneruniversities.model.University;
+import com.example.partneruniversities.repository.SemesterStartRange;
+import com.example.partneruniversities.repository.UniversityRepository;
+import com.example.partneruniversities.service.BulkDeleteReport;
+import com.example.partneruniversities.service.CursorSlice;
+import com.example.partneruniversities.service.ModuleService;
+import com.example.partneruniversities.service.UniversityCursor;
+import com.example.partneruniversities.service.UniversitySearchIndex;
+import com.example.partneruniversities.service.UniversityService;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -26,9 +82,30 @@ public class PartnerUniversitiesClientIntegrationTest {
     @Autowired
     private PartnerUniversitiesClient client;
 
+    @Autowired
+    private PartnerUniversitiesAsyncClient asyncClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UniversityRepository universityRepository;
+
+    @Autowired
+    private ModuleService moduleService;
+
+    @Autowired
+    private UniversityService universityService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
     private Long createdUniversityId;
     private Long createdModuleId;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
 
 
     @Test
@@ -42,8 +119,8 @@ public class PartnerUniversitiesClientIntegrationTest {
         university.setContactPerson("Contact Person");
         university.setMaxOutgoingStudents(10);
         university.setMaxIncomingStudents(10);
-        university.setNextSpringSemesterStart("2023-01-15");
-        university.setNextAutumnSemesterStart("2023-09-15");
+        university.setNextSpringSemesterStart(LocalDate.parse("2023-01-15"));
+        university.setNextAutumnSemesterStart(LocalDate.parse("2023-09-15"));
 
         String universityJson = objectMapper.writeValueAsString(university);
         EntityModel<University> createdUniversity = client.createUniversity(universityJson);
@@ -64,8 +141,8 @@ public class PartnerUniversitiesClientIntegrationTest {
        university.setContactPerson("Updated Contact Person");
        university.setMaxOutgoingStudents(15);
         university.setMaxIncomingStudents(15);
-        university.setNextSpringSemesterStart("2023-02-01");
-        university.setNextAutumnSemesterStart("2023-10-01");
+        university.setNextSpringSemesterStart(LocalDate.parse("2023-02-01"));
+        university.setNextAutumnSemesterStart(LocalDate.parse("2023-10-01"));
 
         University updateUniversity = new University();
         updateUniversity.setName("Updated University");
@@ -75,8 +152,8 @@ public class PartnerUniversitiesClientIntegrationTest {
         updateUniversity.setContactPerson("Updated Contact Person");
         updateUniversity.setMaxOutgoingStudents(15);
         updateUniversity.setMaxIncomingStudents(15);
-        updateUniversity.setNextSpringSemesterStart("2023-02-01");
-        updateUniversity.setNextAutumnSemesterStart("2023-10-01");
+        updateUniversity.setNextSpringSemesterStart(LocalDate.parse("2023-02-01"));
+        updateUniversity.setNextAutumnSemesterStart(LocalDate.parse("2023-10-01"));
 
         String universityJson = objectMapper.writeValueAsString(university);
         String updatedUniversityJson = objectMapper.writeValueAsString(updateUniversity);
@@ -182,8 +259,8 @@ public class PartnerUniversitiesClientIntegrationTest {
         university.setContactPerson("Contact Person");
         university.setMaxOutgoingStudents(10);
         university.setMaxIncomingStudents(10);
-        university.setNextSpringSemesterStart("2023-01-15");
-        university.setNextAutumnSemesterStart("2023-09-15");
+        university.setNextSpringSemesterStart(LocalDate.parse("2023-01-15"));
+        university.setNextAutumnSemesterStart(LocalDate.parse("2023-09-15"));
 
         String universityJson = objectMapper.writeValueAsString(university);
         EntityModel<University> createdUniversity = client.createUniversity(universityJson);
@@ -230,4 +307,1133 @@ public class PartnerUniversitiesClientIntegrationTest {
         List<EntityModel<Module>> modules = client.getModulesByUniversityId(createdUniversityId);
         assertThat(modules).isNotNull();
     }
+
+    @Test
+    @Order(13)
+    public void testAsyncGetUniversityAndModules() {
+        EntityModel<University> university = asyncClient.getUniversityById(createdUniversityId).join();
+        assertThat(Objects.requireNonNull(university.getContent()).getId()).isEqualTo(createdUniversityId);
+        assertThat(university.getLink("modules")).isPresent();
+
+        List<EntityModel<Module>> modules = asyncClient.getModulesByUniversityId(createdUniversityId).join();
+        assertThat(modules).extracting(module -> Objects.requireNonNull(module.getContent()).getId()).contains(createdModuleId);
+    }
+
+    @Test
+    @Order(14)
+    public void testAsyncConcurrentRequests() {
+        List<CompletableFuture<EntityModel<University>>> futures = IntStream.range(0, 200)
+                .mapToObj(i -> asyncClient.getUniversityById(createdUniversityId))
+                .collect(Collectors.toList());
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        assertThat(futures).allSatisfy(future ->
+                assertThat(Objects.requireNonNull(future.join().getContent()).getId()).isEqualTo(createdUniversityId));
+    }
+
+    @Test
+    @Order(15)
+    public void testAsyncCreateAndDeleteModule() {
+        Module module = new Module();
+        module.setName("Async Module");
+        module.setSemester(2);
+        module.setCreditPoints(5);
+        University refUniversity = new University();
+        refUniversity.setId(createdUniversityId);
+        module.setUniversity(refUniversity);
+
+        EntityModel<Module> createdModule = asyncClient.createModule(module.toString()).join();
+        Long idToDelete = Objects.requireNonNull(createdModule.getContent()).getId();
+        asyncClient.deleteModule(idToDelete).join();
+
+        // Verify deletion
+        try {
+            asyncClient.getModuleById(idToDelete).join();
+            Assertions.fail("Expected a CompletionException to be thrown");
+        } catch (CompletionException e) {
+            assertThat(e.getCause().getMessage()).contains("404");
+        }
+    }
+
+    @Test
+    @Order(16)
+    public void testStreamAllUniversities() {
+        List<Long> ids;
+        try (Stream<EntityModel<University>> universities = client.streamAllUniversities(2, 1)) {
+            ids = universities.map(university -> Objects.requireNonNull(university.getContent()).getId()).toList();
+        }
+        assertThat(ids).doesNotHaveDuplicates().contains(createdUniversityId);
+
+        try (Stream<EntityModel<University>> universities = asyncClient.streamAllUniversities(3, 2)) {
+            assertThat(universities.count()).isEqualTo(ids.size());
+        }
+    }
+
+    @Test
+    @Order(17)
+    public void testGetUniversitiesByIds() {
+        BatchFetchResult<University> result = client.getUniversitiesByIds(List.of(-1L, createdUniversityId, createdUniversityId), 4);
+
+        assertThat(result.found()).containsOnlyKeys(createdUniversityId);
+        assertThat(result.failed()).containsOnlyKeys(-1L);
+        assertThat(result.failed().get(-1L).getMessage()).contains("404");
+    }
+
+    @Test
+    @Order(18)
+    public void testCachedReadsAreRevalidated() throws Exception {
+        List<Long> bytesSaved = new CopyOnWriteArrayList<>();
+        ClientResponseCache cache = new ClientResponseCache(100, new CacheMetrics() {
+            @Override
+            public void hit(URI uri, long saved) {
+                bytesSaved.add(saved);
+            }
+        });
+        PartnerUniversitiesClient cachingClient = new PartnerUniversitiesClient(cache);
+
+        EntityModel<University> first = cachingClient.getUniversityById(createdUniversityId);
+        EntityModel<University> second = cachingClient.getUniversityById(createdUniversityId);
+        assertThat(second).isSameAs(first);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(bytesSaved).singleElement().satisfies(saved -> assertThat(saved).isPositive());
+
+        University changed = Objects.requireNonNull(first.getContent());
+        changed.setContactPerson("Cached Contact Person");
+        EntityModel<University> updated = cachingClient.updateUniversity(createdUniversityId, objectMapper.writeValueAsString(changed));
+        assertThat(updated).isNotSameAs(first);
+        assertThat(Objects.requireNonNull(updated.getContent()).getContactPerson()).isEqualTo("Cached Contact Person");
+        assertThat(cache.hits()).isEqualTo(1);
+    }
+
+    @Test
+    @Order(19)
+    public void testReadsFailOverToReachableEndpoint() {
+        PartnerUniversitiesClient multiClient = new PartnerUniversitiesClient(
+                List.of(URI.create("http://localhost:1/"), URI.create("http://localhost:8080/")), null, false);
+
+        EntityModel<University> university = multiClient.getUniversityById(createdUniversityId);
+        assertThat(Objects.requireNonNull(university.getContent()).getId()).isEqualTo(createdUniversityId);
+        assertThat(multiClient.getModulesByUniversityId(createdUniversityId)).isNotNull();
+        assertThat(multiClient.searchUniversities(Map.of("name", university.getContent().getName())))
+                .anySatisfy(found -> assertThat(Objects.requireNonNull(found.getContent()).getId()).isEqualTo(createdUniversityId));
+    }
+
+    @Test
+    @Order(20)
+    public void testHedgedReads() throws Exception {
+        AtomicBoolean primarySlow = new AtomicBoolean();
+        HttpServer primary = stubEndpoint(exchange -> {
+            if (primarySlow.get()) {
+                Thread.sleep(2000);
+            }
+            return false;
+        });
+        // Slower than the primary, so reads keep going to the primary, and answering with a name of its own
+        HttpServer backup = stubEndpoint(exchange -> {
+            Thread.sleep(100);
+            respond(exchange, "{\"id\":1,\"name\":\"Backup University\"}");
+            return true;
+        });
+        try {
+            PartnerUniversitiesClient hedgingClient = new PartnerUniversitiesClient(List.of(
+                    URI.create("http://localhost:" + primary.getAddress().getPort() + "/"),
+                    URI.create("http://localhost:" + backup.getAddress().getPort() + "/")), null, true);
+            // Enough reads for the primary's 95th percentile to be known, so reads are hedged from then on
+            for (int i = 0; i < 40; i++) {
+                hedgingClient.getUniversityById(1L);
+            }
+
+            // Only a hedge to the backup answers within the primary's delay
+            primarySlow.set(true);
+            long start = System.nanoTime();
+            EntityModel<University> university = hedgingClient.getUniversityById(1L);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1500));
+            assertThat(Objects.requireNonNull(university.getContent()).getName()).isEqualTo("Backup University");
+        } finally {
+            primary.stop(0);
+            backup.stop(0);
+        }
+    }
+
+    @Test
+    @Order(21)
+    public void testUpdateUniversityKeepsUnchangedModules() throws Exception {
+        University university = new University();
+        university.setName("University With Modules");
+        university.setCountry("Country");
+        university.setDepartmentName("Department");
+        university.setDepartmentUrl("http://modules.example.com");
+        for (int semester = 1; semester <= 3; semester++) {
+            Module module = new Module();
+            module.setName("Module " + semester);
+            module.setSemester(semester);
+            module.setCreditPoints(5);
+            university.getModules().add(module);
+        }
+        University created = Objects.requireNonNull(client.createUniversity(objectMapper.writeValueAsString(university)).getContent());
+        assertThat(created.getModules()).hasSize(3).allSatisfy(module -> assertThat(module.getId()).isNotNull());
+        Map<String, Long> idsByName = created.getModules().stream().collect(Collectors.toMap(Module::getName, Module::getId));
+
+        // Resend the modules without ids, with one of them changed and one left out
+        university.setContactPerson("New Contact Person");
+        university.getModules().get(0).setCreditPoints(10);
+        university.getModules().remove(2);
+        University updated = Objects.requireNonNull(client.updateUniversity(created.getId(), objectMapper.writeValueAsString(university)).getContent());
+
+        assertThat(updated.getContactPerson()).isEqualTo("New Contact Person");
+        assertThat(updated.getModules()).extracting(Module::getId)
+                .containsExactlyInAnyOrder(idsByName.get("Module 1"), idsByName.get("Module 2"));
+        assertThat(updated.getModules()).filteredOn(module -> module.getName().equals("Module 1"))
+                .singleElement().satisfies(module -> assertThat(module.getCreditPoints()).isEqualTo(10));
+    }
+
+    @Test
+    @Order(22)
+    public void testHotQueriesUseIndexes() {
+        // The statements Hibernate actually prepares for the repository queries, with the indexes they should use
+        int uncached = UniversityRepository.MAX_CACHED_PAGE_SIZE + 2;
+        Map<Runnable, List<String>> indexesByCall = new LinkedHashMap<>();
+        indexesByCall.put(() -> moduleService.getModuleIdsByUniversityId(createdUniversityId), List.of("IDX_MODULE_UNIVERSITY_ID"));
+        indexesByCall.put(() -> universityService.deleteAllById(List.of(-1L, -2L)), List.of("IDX_MODULE_UNIVERSITY_ID"));
+        indexesByCall.put(() -> universityRepository.findWithModulesByIdIn(List.of(createdUniversityId, -1L)), List.of("IDX_MODULE_UNIVERSITY_ID"));
+        indexesByCall.put(() -> universityService.deleteByCountry("Explained Country"), List.of("IDX_UNIVERSITY_COUNTRY"));
+        indexesByCall.put(() -> universityRepository.findSeek(null, null, null, SemesterStartRange.UNBOUNDED, "name", true, "A", 1L, uncached),
+                List.of("IDX_UNIVERSITY_NAME"));
+        indexesByCall.put(() -> universityRepository.findSeek("Explained", null, null, SemesterStartRange.UNBOUNDED, "name", false, null, null, uncached),
+                List.of("IDX_UNIVERSITY_NAME_DESC"));
+        indexesByCall.put(() -> universityRepository.findSeek(null, null, null, SemesterStartRange.UNBOUNDED, "departmentName", true, null, null, uncached),
+                List.of("IDX_UNIVERSITY_DEPARTMENT_NAME"));
+        indexesByCall.put(() -> universityRepository.findSeek("Explained", null, null,
+                        new SemesterStartRange(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 3, 31), null, null), "name", true, null, null, uncached),
+                List.of("IDX_UNIVERSITY_NEXT_SPRING_SEMESTER_START"));
+        indexesByCall.put(() -> universityRepository.findSeek(null, null, null,
+                        new SemesterStartRange(null, null, LocalDate.of(2023, 9, 1), null), "id", true, null, null, uncached),
+                List.of("IDX_UNIVERSITY_NEXT_AUTUMN_SEMESTER_START"));
+
+        indexesByCall.forEach((call, indexes) -> {
+            sqlStatementCounter.startRecording();
+            try {
+                call.run();
+            } finally {
+                List<String> statements = sqlStatementCounter.stopRecording();
+                assertThat(statements).isNotEmpty();
+                String plans = statements.stream().map(this::explain).collect(Collectors.joining("\n"));
+                indexes.forEach(index -> assertThat(plans).as(String.join("\n", statements)).containsPattern("PUBLIC\\." + index + "\\b"));
+                assertThat(plans).as(String.join("\n", statements)).doesNotContain("tableScan");
+            }
+        });
+    }
+
+    /**
+     * H2's plan for a statement with parameters, which are left unset: the plan does not depend on their values.
+     */
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.query("EXPLAIN " + sql,
+                statement -> {
+                    for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                        statement.setNull(i, Types.NULL);
+                    }
+                },
+                (row, rowNum) -> row.getString(1)));
+    }
+
+    @Test
+    @Order(23)
+    public void testSearchUniversitiesBySemesterStart() throws Exception {
+        for (String springStart : List.of("2031-02-01", "2031-03-15", "2031-04-30")) {
+            University university = new University();
+            university.setName("Semester Start " + springStart);
+            university.setCountry("Country");
+            university.setDepartmentName("Department");
+            university.setNextSpringSemesterStart(LocalDate.parse(springStart));
+            client.createUniversity(objectMapper.writeValueAsString(university));
+        }
+
+        Map<String, String> params = new HashMap<>();
+        params.put("name", "Semester Start");
+        params.put("springStartFrom", "2031-03-01");
+        params.put("springStartTo", "2031-04-30");
+        assertThat(client.searchUniversities(params))
+                .extracting(university -> Objects.requireNonNull(university.getContent()).getNextSpringSemesterStart())
+                .containsExactly(LocalDate.parse("2031-03-15"), LocalDate.parse("2031-04-30"));
+    }
+
+    @Test
+    @Order(24)
+    public void testExportResumesAfterLastId() throws Exception {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        URI export = URI.create("http://localhost:8080/export");
+        List<String> lines = httpClient.send(HttpRequest.newBuilder(export).build(), HttpResponse.BodyHandlers.ofLines()).body().toList();
+        assertThat(lines).isNotEmpty();
+        List<Long> ids = new ArrayList<>();
+        for (String line : lines) {
+            ids.add(objectMapper.readValue(line, University.class).getId());
+        }
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+
+        Long afterId = ids.get(ids.size() / 2);
+        HttpResponse<Stream<String>> resumed = httpClient.send(HttpRequest.newBuilder(URI.create(export + "?afterId=" + afterId)).build(), HttpResponse.BodyHandlers.ofLines());
+        assertThat(resumed.body().toList()).isEqualTo(lines.subList(ids.size() / 2 + 1, lines.size()));
+
+        HttpResponse<Stream<String>> csv = httpClient.send(HttpRequest.newBuilder(export).header("Accept", "text/csv")
+                .header("Range", "id=" + ids.get(ids.size() - 1) + "-").build(), HttpResponse.BodyHandlers.ofLines());
+        assertThat(csv.statusCode()).isEqualTo(206);
+        assertThat(csv.body().toList()).first().asString().startsWith("id,name,country");
+    }
+
+    @Test
+    @Order(25)
+    public void testModuleWriteKeepsOtherUniversitiesCached() {
+        University cached = new University();
+        cached.setName("Cached University");
+        University written = new University();
+        written.setName("Written University");
+        Long cachedId = universityRepository.save(cached).getId();
+        Long writtenId = universityRepository.save(written).getId();
+        long writtenVersion = universityRepository.findVersionById(writtenId).orElseThrow();
+
+        Cache cache = entityManagerFactory.getCache();
+        cache.evictAll();
+        universityRepository.findById(cachedId);
+        universityRepository.findWithModulesByIdIn(List.of(writtenId));
+        assertThat(cache.contains(University.class, cachedId)).isTrue();
+        assertThat(modulesCached(writtenId)).isTrue();
+
+        Module module = new Module();
+        module.setName("Cache Module");
+        module.setSemester(1);
+        module.setCreditPoints(5);
+        University reference = new University();
+        reference.setId(writtenId);
+        module.setUniversity(reference);
+        assertThat(moduleService.createAll(List.of(module), true).created()).hasSize(1);
+
+        assertThat(cache.contains(University.class, cachedId)).isTrue();
+        assertThat(universityRepository.findVersionById(writtenId)).contains(writtenVersion + 1);
+        // Only the written university's module collection is evicted, so its next read sees the new module
+        assertThat(modulesCached(writtenId)).isFalse();
+    }
+
+    @Test
+    @Order(26)
+    public void testSearchIndexPagesThroughTopHits() {
+        UniversitySearchIndex index = new UniversitySearchIndex();
+        List<University> universities = new ArrayList<>();
+        for (long id = 1; id <= 25; id++) {
+            University university = new University();
+            university.setId(id);
+            // Repeated names, so pages are also ordered by id within a name
+            university.setName("Paging University " + (char) ('A' + id % 7));
+            university.setCountry("Country");
+            universities.add(university);
+            index.put(university);
+        }
+        index.markReady();
+
+        // Every name has the same length and starts with "Paging", so by relevance they are ordered by id alone
+        Map<String, Comparator<University>> orders = Map.of(
+                "name", Comparator.comparing(University::getName).thenComparing(University::getId),
+                UniversitySearchIndex.RELEVANCE, Comparator.comparing(University::getId));
+        for (Map.Entry<String, Comparator<University>> order : orders.entrySet()) {
+            for (boolean ascending : List.of(true, false)) {
+                String sortBy = order.getKey();
+                List<Long> expected = universities.stream()
+                        .sorted(ascending ? order.getValue() : order.getValue().reversed())
+                        .map(University::getId)
+                        .toList();
+                // "Paging" is answered through trigrams, "ng" by walking the sort order
+                for (String name : List.of("Paging", "ng")) {
+                    List<Long> forward = new ArrayList<>();
+                    CursorSlice<Long> slice = index.search(name, null, null, sortBy, ascending, 0, 4, null);
+                    forward.addAll(slice.content());
+                    while (slice.nextCursor() != null) {
+                        slice = index.search(name, null, null, sortBy, ascending, 0, 4, UniversityCursor.decode(slice.nextCursor()));
+                        forward.addAll(slice.content());
+                    }
+                    assertThat(forward).isEqualTo(expected);
+
+                    List<Long> backward = new ArrayList<>(slice.content());
+                    while (slice.prevCursor() != null) {
+                        slice = index.search(name, null, null, sortBy, ascending, 0, 4, UniversityCursor.decode(slice.prevCursor()));
+                        backward.addAll(0, slice.content());
+                    }
+                    assertThat(backward).isEqualTo(expected);
+
+                    assertThat(index.search(name, null, null, sortBy, ascending, 2, 4, null).content()).isEqualTo(expected.subList(8, 12));
+                    assertThat(index.search(name, null, null, sortBy, ascending, 7, 4, null).content()).isEmpty();
+                }
+            }
+        }
+    }
+
+    @Test
+    @Order(27)
+    public void testSemesterStartMigrationKeepsUnreadableValues() {
+        // A database of its own, migrated to V1 and filled with the strings the old schema accepted
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:semester-start-migration;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate database = new JdbcTemplate(dataSource);
+        try {
+            Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").target("1").load().migrate();
+            String insert = "INSERT INTO university (id, name, max_outgoing_students, max_incoming_students, "
+                    + "next_spring_semester_start, next_autumn_semester_start, version) VALUES (?, ?, 0, 0, ?, ?, 0)";
+            database.update(insert, 1, "Dates", "2024-02-01", "2024-09-15");
+            database.update(insert, 2, "Date-times", "2024-02-01T10:15:30", " 2024-09-15T23:30:00Z ");
+            database.update(insert, 3, "No such date", "2023-02-30", "");
+            database.update(insert, 4, "Other format", "01.02.2024", null);
+
+            Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+
+            List<List<LocalDate>> starts = database.query("SELECT next_spring_semester_start, next_autumn_semester_start FROM university ORDER BY id",
+                    (row, rowNum) -> Arrays.asList(row.getObject(1, LocalDate.class), row.getObject(2, LocalDate.class)));
+            assertThat(starts).containsExactly(
+                    List.of(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 9, 15)),
+                    List.of(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 9, 15)),
+                    Arrays.asList(null, null),
+                    Arrays.asList(null, null));
+            List<String> discarded = database.query("SELECT university_id, semester, discarded_value FROM discarded_semester_start ORDER BY university_id",
+                    (row, rowNum) -> row.getLong(1) + " " + row.getString(2) + " " + row.getString(3));
+            assertThat(discarded).containsExactly("3 spring 2023-02-30", "4 spring 01.02.2024");
+        } finally {
+            database.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    @Order(28)
+    public void testGetAllModulesFollowsNextLinks() {
+        List<Long> createdIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Module module = new Module();
+            module.setName("Paged Module " + i);
+            module.setSemester(1);
+            module.setCreditPoints(5);
+            University refUniversity = new University();
+            refUniversity.setId(createdUniversityId);
+            module.setUniversity(refUniversity);
+            createdIds.add(Objects.requireNonNull(client.createModule(module.toString()).getContent()).getId());
+        }
+
+        List<Long> allIds = client.getAllModules().stream()
+                .map(module -> Objects.requireNonNull(module.getContent()).getId())
+                .toList();
+        // Pages of two modules, so the client has to follow several next links
+        List<Long> pagedIds = client.getAllModules(2).stream()
+                .map(module -> Objects.requireNonNull(module.getContent()).getId())
+                .toList();
+        List<Long> asyncPagedIds = asyncClient.getAllModules(2).join().stream()
+                .map(module -> Objects.requireNonNull(module.getContent()).getId())
+                .toList();
+        assertThat(allIds).containsAll(createdIds).isSorted();
+        assertThat(pagedIds).isEqualTo(allIds);
+        assertThat(asyncPagedIds).isEqualTo(allIds);
+        assertThat(asyncClient.getAllModules().join()).hasSameSizeAs(allIds);
+    }
+
+    @Test
+    @Order(29)
+    public void testUniversityListingValidatesDirectionAndSize() throws Exception {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        HttpResponse<String> sideways = httpClient.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:8080/universities/search?direction=sideways")).build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(sideways.statusCode()).isEqualTo(400);
+        HttpResponse<String> descending = httpClient.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:8080/universities/search?direction=DESC")).build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(descending.statusCode()).isEqualTo(200);
+
+        // A size below 1 is read as 1, a size above the maximum as the maximum
+        HttpResponse<String> empty = httpClient.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:8080/universities?size=0&includeModules=false")).build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(empty.statusCode()).isEqualTo(200);
+        assertThat(objectMapper.readTree(empty.body()).at("/_embedded/universityList")).hasSize(1);
+        assertThat(objectMapper.readTree(empty.body()).at("/_links/next/href").asText()).contains("size=1");
+        HttpResponse<String> huge = httpClient.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:8080/universities/search?size=100000&includeModules=false")).build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(huge.statusCode()).isEqualTo(200);
+        assertThat(objectMapper.readTree(huge.body()).at("/_links/self/href").asText()).contains("size=100000");
+        assertThat(objectMapper.readTree(huge.body()).at("/_embedded/universityList").size()).isLessThanOrEqualTo(1000);
+    }
+
+    @Test
+    @Order(30)
+    public void testCoalescedRequestsStopWaitingForAStuckLeader() {
+        RequestCoalescer coalescer = new RequestCoalescer(true, Duration.ofMillis(50));
+        RequestCoalescer.Flight flight = coalescer.join("/universities/1");
+        assertThat(flight.lead()).isTrue();
+
+        RequestCoalescer.Flight joined = coalescer.join("/universities/1");
+        assertThat(joined).isSameAs(flight);
+        assertThat(joined.lead()).isFalse();
+        // The leader never completes, so the waiter gives up and renders its own response
+        assertThat(joined.await()).isNull();
+        assertThat(coalescer.statistics()).containsEntry("timedOut", 1L).containsEntry("coalesced", 0L);
+
+        // A write that has begun already keeps new requests out of the flight
+        coalescer.invalidate();
+        assertThat(coalescer.join("/universities/1")).isNotSameAs(flight);
+    }
+
+    @Test
+    @Order(31)
+    public void testLosingHedgedReadIsCancelled() throws Exception {
+        AtomicBoolean primaryStuck = new AtomicBoolean();
+        CountDownLatch primaryDisconnected = new CountDownLatch(1);
+        HttpServer primary = stubEndpoint(exchange -> {
+            if (!primaryStuck.get()) {
+                return false;
+            }
+            // Headers, then a trickle of whitespace for up to 5 s: writing fails once the client has disconnected
+            exchange.getResponseHeaders().set("Content-Type", "application/hal+json");
+            exchange.sendResponseHeaders(200, 0);
+            try (var body = exchange.getResponseBody()) {
+                for (int i = 0; i < 250; i++) {
+                    body.write(' ');
+                    body.flush();
+                    Thread.sleep(20);
+                }
+            } catch (IOException e) {
+                primaryDisconnected.countDown();
+            }
+            return true;
+        });
+        // Much slower than the primary, so reads keep going to the primary until it gets stuck
+        HttpServer backup = stubEndpoint(exchange -> {
+            Thread.sleep(100);
+            return false;
+        });
+        try {
+            PartnerUniversitiesClient hedgingClient = new PartnerUniversitiesClient(List.of(
+                    URI.create("http://localhost:" + primary.getAddress().getPort() + "/"),
+                    URI.create("http://localhost:" + backup.getAddress().getPort() + "/")), null, true);
+            // Enough reads for the faster primary's 95th percentile to be known, so reads are hedged from then on
+            for (int i = 0; i < 40; i++) {
+                hedgingClient.getUniversityById(1L);
+            }
+
+            primaryStuck.set(true);
+            EntityModel<University> university = hedgingClient.getUniversityById(1L);
+            assertThat(university.getContent().getName()).isEqualTo("Stub University");
+            assertThat(primaryDisconnected.await(2, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            primary.stop(0);
+            backup.stop(0);
+        }
+    }
+
+    /**
+     * A dispatcher on a free port that serves university 1 unless {@code handler} has answered the request itself.
+     */
+    private static HttpServer stubEndpoint(StubHandler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        String base = "http://localhost:" + server.getAddress().getPort();
+        server.createContext("/", exchange -> {
+            try {
+                if (exchange.getRequestURI().getPath().equals("/")) {
+                    respond(exchange, "{\"_links\":{\"universities\":{\"href\":\"" + base + "/universities\"},"
+                            + "\"modules\":{\"href\":\"" + base + "/modules\"}}}");
+                } else if (!handler.handle(exchange)) {
+                    respond(exchange, "{\"id\":1,\"name\":\"Stub University\","
+                            + "\"_links\":{\"self\":{\"href\":\"" + base + "/universities/1\"}}}");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/hal+json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private interface StubHandler {
+
+        /**
+         * Answers the request and returns true, or returns false to leave it to the default answer.
+         */
+        boolean handle(HttpExchange exchange) throws IOException, InterruptedException;
+    }
+
+    @Test
+    @Order(32)
+    public void testCachedSearchPagesNeedNoStatementsWhenUniversitiesAreEvicted() {
+        List<University> universities = IntStream.range(0, 30).mapToObj(i -> {
+            University university = new University();
+            university.setName("Query Cache " + i);
+            university.setCountry("Country");
+            university.setDepartmentName("Department");
+            return university;
+        }).collect(Collectors.toList());
+        universityRepository.saveAll(universities);
+
+        sqlStatementCounter.reset();
+        List<Long> firstRead = pageIds(21);
+        assertThat(firstRead).hasSize(21);
+        assertThat(sqlStatementCounter.count()).isEqualTo(1);
+
+        // The cached page holds the rows, so it is answered without the universities' own cache entries
+        entityManagerFactory.getCache().evict(University.class);
+        assertThat(entityManagerFactory.getCache().contains(University.class, firstRead.get(0))).isFalse();
+        sqlStatementCounter.reset();
+        assertThat(pageIds(21)).isEqualTo(firstRead);
+        assertThat(sqlStatementCounter.count()).isZero();
+
+        // Pages above the cached size are read from the database every time
+        pageIds(UniversityRepository.MAX_CACHED_PAGE_SIZE + 2);
+        sqlStatementCounter.reset();
+        assertThat(pageIds(UniversityRepository.MAX_CACHED_PAGE_SIZE + 2)).hasSize(30);
+        assertThat(sqlStatementCounter.count()).isEqualTo(1);
+    }
+
+    private List<Long> pageIds(int limit) {
+        return universityRepository.findSeek("Query Cache", null, null, SemesterStartRange.UNBOUNDED,
+                "name", true, null, null, limit).stream().map(University::getId).toList();
+    }
+
+    @Test
+    @Order(33)
+    public void testCsvImportRejectsOnlyTheFailingRows() throws Exception {
+        String csv = "name,country,departmentName,contactPerson,maxIncomingStudents\r\n"
+                + "Csv Mixed 1,Country,Department,Contact,10\r\n"
+                // A quoted field spanning lines is one record
+                + "Csv Mixed 2,Country,Department,\"Line one\r\nLine \"\"two\"\", continued\",20\r\n"
+                + "Csv Mixed 3,Country,Department\r\n"
+                + "Csv Mixed 4,Country,Department,Contact,many\r\n"
+                // Valid for the import, rejected by the database: its chunk is retried row by row
+                + "Csv Mixed 5 " + "x".repeat(300) + ",Country,Department,Contact,30\r\n"
+                + "\r\n"
+                + "Csv Mixed 6,Country,Department,Contact,40\r\n"
+                + "Csv Mixed 7,Country,Department,\"Never closed,50\r\n";
+        HttpClient httpClient = HttpClient.newHttpClient();
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:8080/universities/bulk?chunkSize=3"))
+                .header("Content-Type", "text/csv")
+                .POST(HttpRequest.BodyPublishers.ofString(csv)).build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(200);
+
+        var report = objectMapper.readTree(response.body());
+        assertThat(report.get("imported").asLong()).isEqualTo(3);
+        assertThat(report.get("failed").asLong()).isEqualTo(4);
+        Map<Long, String> errors = new HashMap<>();
+        report.get("errors").forEach(error -> errors.put(error.get("row").asLong(), error.get("message").asText()));
+        assertThat(errors).containsOnlyKeys(3L, 4L, 5L, 7L);
+        assertThat(errors.get(3L)).isEqualTo("Expected 5 columns but found 3");
+        assertThat(errors.get(4L)).contains("many");
+        assertThat(errors.get(5L)).containsIgnoringCase("too long");
+        assertThat(errors.get(7L)).isEqualTo("Unterminated quoted field");
+
+        List<String> imported = new ArrayList<>();
+        for (int row = 1; row <= 7; row++) {
+            HttpResponse<String> search = httpClient.send(HttpRequest.newBuilder(URI.create(
+                            "http://localhost:8080/universities/search?includeModules=false&name=Csv%20Mixed%20" + row)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            objectMapper.readTree(search.body()).at("/_embedded/universityList")
+                    .forEach(university -> imported.add(university.get("name").asText()));
+            if (row == 2) {
+                assertThat(objectMapper.readTree(search.body()).at("/_embedded/universityList/0/contactPerson").asText())
+                        .isEqualTo("Line one\nLine \"two\", continued");
+            }
+        }
+        assertThat(imported).containsExactlyInAnyOrder("Csv Mixed 1", "Csv Mixed 2", "Csv Mixed 6");
+    }
+
+    @Test
+    @Order(34)
+    public void testAtomicModuleBatchRejectsTheWholeBatch() throws Exception {
+        Long universityId = createBatchUniversity("Atomic Batch University");
+
+        HttpResponse<String> response = postModuleBatch(universityId, "atomic");
+        assertThat(response.statusCode()).isEqualTo(400);
+        var body = objectMapper.readTree(response.body());
+        assertThat(body.get("created")).isEmpty();
+        assertThat(body.get("rejected")).hasSize(2);
+        assertThat(body.at("/rejected/0/index").asInt()).isEqualTo(1);
+        assertThat(body.at("/rejected/0/message").asText()).isEqualTo("University " + Long.MAX_VALUE + " not found");
+        assertThat(body.at("/rejected/1/index").asInt()).isEqualTo(2);
+        assertThat(body.at("/rejected/1/message").asText()).isEqualTo("University is mandatory");
+
+        // The valid module was not created either
+        assertThat(client.getModulesByUniversityId(universityId)).isEmpty();
+    }
+
+    @Test
+    @Order(35)
+    public void testBestEffortModuleBatchCreatesTheValidModules() throws Exception {
+        Long universityId = createBatchUniversity("Best Effort Batch University");
+
+        HttpResponse<String> response = postModuleBatch(universityId, "best-effort");
+        assertThat(response.statusCode()).isEqualTo(201);
+        var body = objectMapper.readTree(response.body());
+        assertThat(body.get("created")).hasSize(1);
+        assertThat(body.at("/created/0/name").asText()).isEqualTo("Batch Module");
+        long createdId = body.at("/created/0/id").asLong();
+        assertThat(body.get("rejected")).hasSize(2);
+        assertThat(body.at("/rejected/0/index").asInt()).isEqualTo(1);
+        assertThat(body.at("/rejected/1/index").asInt()).isEqualTo(2);
+
+        assertThat(client.getModulesByUniversityId(universityId))
+                .extracting(module -> Objects.requireNonNull(module.getContent()).getId())
+                .containsExactly(createdId);
+    }
+
+    @Test
+    @Order(36)
+    public void testDeletingMoreThanOneChunkOfUniversitiesLeavesNoOrphanedModules() {
+        List<University> universities = IntStream.range(0, 1500)
+                .mapToObj(i -> universityWithModules("Bulk Delete " + i, 2))
+                .collect(Collectors.toList());
+        universityRepository.saveAll(universities);
+        University kept = universityRepository.save(universityWithModules("Bulk Delete Kept", 2));
+
+        List<Long> ids = new ArrayList<>(universities.stream().map(University::getId).toList());
+        // Duplicates and unknown ids are ignored
+        ids.add(ids.get(0));
+        ids.add(Long.MAX_VALUE);
+        BulkDeleteReport report = universityService.deleteAllById(ids);
+
+        assertThat(report.universitiesDeleted()).isEqualTo(1500);
+        assertThat(report.modulesDeleted()).isEqualTo(3000);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM module m "
+                + "WHERE NOT EXISTS (SELECT 1 FROM university u WHERE u.id = m.university_id)", Long.class)).isZero();
+        List<Long> remainingOwners = jdbcTemplate.queryForList("SELECT DISTINCT university_id FROM module", Long.class);
+        assertThat(remainingOwners).doesNotContainAnyElementsOf(ids).contains(kept.getId());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM module WHERE university_id = ?", Long.class, kept.getId()))
+                .isEqualTo(2);
+    }
+
+    @Test
+    @Order(37)
+    public void testOnlySavingAnExistingUniversityForcesANewVersion() {
+        University created = universityService.save(universityWithModules("Versioned University", 2));
+        assertThat(jdbcTemplate.queryForObject("SELECT version FROM university WHERE id = ?", Long.class, created.getId()))
+                .isZero();
+
+        universityService.save(created);
+        assertThat(jdbcTemplate.queryForObject("SELECT version FROM university WHERE id = ?", Long.class, created.getId()))
+                .isEqualTo(1);
+    }
+
+    @Test
+    @Order(38)
+    public void testCollectionEtagsCoverTheRepresentationAndTheQuery() throws Exception {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        HttpResponse<Void> page = httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/modules?size=5"))
+                .header("Accept", "application/hal+json").build(), HttpResponse.BodyHandlers.discarding());
+        HttpResponse<Void> otherSize = httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/modules?size=6"))
+                .header("Accept", "application/hal+json").build(), HttpResponse.BodyHandlers.discarding());
+        HttpResponse<Void> stream = httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/modules?size=5"))
+                .header("Accept", "application/x-ndjson").build(), HttpResponse.BodyHandlers.discarding());
+
+        String etag = page.headers().firstValue("ETag").orElseThrow();
+        assertThat(otherSize.headers().firstValue("ETag")).isPresent().get().isNotEqualTo(etag);
+        assertThat(stream.headers().firstValue("ETag")).isPresent().get().isNotEqualTo(etag);
+        assertThat(page.headers().allValues("Vary")).anySatisfy(vary -> assertThat(vary).containsIgnoringCase("Accept"));
+        assertThat(stream.headers().allValues("Vary")).anySatisfy(vary -> assertThat(vary).containsIgnoringCase("Accept"));
+
+        // The stream's tag does not revalidate the page
+        HttpResponse<Void> crossed = httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/modules?size=5"))
+                .header("Accept", "application/hal+json")
+                .header("If-None-Match", stream.headers().firstValue("ETag").orElseThrow()).build(), HttpResponse.BodyHandlers.discarding());
+        assertThat(crossed.statusCode()).isEqualTo(200);
+
+        HttpResponse<Void> search = httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/universities/search?name=a")).build(),
+                HttpResponse.BodyHandlers.discarding());
+        HttpResponse<Void> otherSearch = httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/universities/search?name=b")).build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertThat(otherSearch.headers().firstValue("ETag")).isPresent().get()
+                .isNotEqualTo(search.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    @Order(39)
+    public void testCompressedResponsesHaveTheirOwnStrongEtag() throws Exception {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        URI modules = URI.create("http://localhost:8080/modules?size=100");
+        HttpResponse<byte[]> plain = httpClient.send(HttpRequest.newBuilder(modules).build(), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> compressed = httpClient.send(HttpRequest.newBuilder(modules).header("Accept-Encoding", "gzip").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        String etag = plain.headers().firstValue("ETag").orElseThrow();
+        assertThat(etag).startsWith("\"").doesNotContain("-gzip");
+        assertThat(compressed.headers().firstValue("Content-Encoding")).contains("gzip");
+        assertThat(compressed.headers().firstValue("ETag")).contains(etag.substring(0, etag.length() - 1) + "-gzip\"");
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(compressed.body()))) {
+            assertThat(body.readAllBytes()).isEqualTo(plain.body());
+        }
+
+        // Each representation revalidates with its own tag
+        HttpResponse<Void> compressedRevalidated = httpClient.send(HttpRequest.newBuilder(modules).header("Accept-Encoding", "gzip")
+                .header("If-None-Match", compressed.headers().firstValue("ETag").orElseThrow()).build(), HttpResponse.BodyHandlers.discarding());
+        assertThat(compressedRevalidated.statusCode()).isEqualTo(304);
+        assertThat(compressedRevalidated.headers().firstValue("ETag")).isEqualTo(compressed.headers().firstValue("ETag"));
+        HttpResponse<Void> plainRevalidated = httpClient.send(HttpRequest.newBuilder(modules)
+                .header("If-None-Match", etag).build(), HttpResponse.BodyHandlers.discarding());
+        assertThat(plainRevalidated.statusCode()).isEqualTo(304);
+        assertThat(plainRevalidated.headers().firstValue("ETag")).contains(etag);
+
+        // Small responses are sent as they are, also when replayed from the response cache
+        for (int i = 0; i < 2; i++) {
+            HttpResponse<String> university = httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/universities/" + createdUniversityId))
+                    .header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofString());
+            assertThat(university.headers().firstValue("Content-Encoding")).isEmpty();
+            assertThat(university.headers().firstValue("ETag")).isPresent().get().asString().startsWith("\"").doesNotContain("-gzip");
+            assertThat(objectMapper.readTree(university.body()).at("/id").asLong()).isEqualTo(createdUniversityId);
+        }
+    }
+
+    @Test
+    @Order(40)
+    public void testSearchIndexBuildDoesNotOverwriteNewerWrites() {
+        UniversitySearchIndex index = new UniversitySearchIndex();
+        University updated = indexedUniversity(1L, 2, "Renamed University");
+        University deleted = indexedUniversity(2L, 0, "Deleted University");
+
+        // Writes committed while the index is being built reach it before the batches read earlier
+        index.put(updated);
+        index.remove(deleted.getId());
+        index.put(indexedUniversity(1L, 1, "Original University"));
+        index.put(deleted);
+        index.markReady();
+
+        assertThat(index.search("University", null, null, "id", true, 0, 10, null).content()).containsExactly(1L);
+        assertThat(index.search("Original", null, null, "id", true, 0, 10, null).content()).isEmpty();
+
+        // Once ready, an id is indexed again when it is put again
+        index.remove(updated.getId());
+        index.put(indexedUniversity(1L, 3, "Restored University"));
+        assertThat(index.search("Restored", null, null, "id", true, 0, 10, null).content()).containsExactly(1L);
+    }
+
+    private static University indexedUniversity(Long id, long version, String name) {
+        University university = new University();
+        university.setId(id);
+        university.setVersion(version);
+        university.setName(name);
+        university.setCountry("Country");
+        return university;
+    }
+
+    @Test
+    @Order(41)
+    public void testSearchIndexKeepsItsOrdersAcrossRelabellingAndCompaction() {
+        UniversitySearchIndex index = new UniversitySearchIndex();
+        Map<Long, University> indexed = new HashMap<>();
+        Random random = new Random(41);
+        // Every name sorts right after the one before and before "Label Z", so each goes into the gap the one before
+        // it halved, and the labels around it run out of room again and again
+        List<String> names = new ArrayList<>(List.of("Label A", "Label Z"));
+        IntStream.range(0, 300).forEach(i -> names.add("Label M" + "a".repeat(i)));
+        for (int i = 0; i < names.size(); i++) {
+            University university = indexedUniversity((long) i + 1, 0, names.get(i));
+            university.setCountry("Country " + random.nextInt(50));
+            indexed.put(university.getId(), university);
+            index.put(university);
+        }
+        index.markReady();
+        assertSearchIndexOrders(index, indexed.values());
+
+        // Every rename retires a slot; after the third one more than half of them are retired and the index is compacted
+        List<Long> ids = new ArrayList<>(indexed.keySet());
+        for (int version = 1; version <= 3; version++) {
+            Collections.shuffle(ids, random);
+            for (Long id : ids) {
+                University renamed = indexedUniversity(id, version, "Label " + (char) ('B' + random.nextInt(24)) + random.nextInt(1000));
+                renamed.setCountry(indexed.get(id).getCountry());
+                indexed.put(id, renamed);
+                index.put(renamed);
+            }
+            assertSearchIndexOrders(index, indexed.values());
+        }
+
+        ids.stream().filter(id -> id % 3 == 0).forEach(id -> {
+            index.remove(id);
+            indexed.remove(id);
+        });
+        assertSearchIndexOrders(index, indexed.values());
+    }
+
+    @Test
+    @Order(42)
+    public void testSearchIndexRanksExactThenPrefixThenInfixMatches() {
+        UniversitySearchIndex index = new UniversitySearchIndex();
+        List<String> names = List.of("Art", "Pop Art", "Arts", "Art", "Artemis", "Modern Art", "Start", "Arte");
+        for (int i = 0; i < names.size(); i++) {
+            University university = indexedUniversity((long) i + 1, 0, names.get(i));
+            university.setCountry(i == 0 ? "Lower Austria" : "Austria");
+            index.put(university);
+        }
+        index.markReady();
+
+        // Shorter names first within a tier, then lower ids; "Start" does not contain "Art"
+        List<Long> byName = List.of(1L, 4L, 3L, 8L, 5L, 2L, 6L);
+        assertThat(searchIndexPages(index, "Art", null, UniversitySearchIndex.RELEVANCE, true, 2)).isEqualTo(byName);
+        List<Long> byNameDescending = new ArrayList<>(byName);
+        Collections.reverse(byNameDescending);
+        assertThat(searchIndexPages(index, "Art", null, UniversitySearchIndex.RELEVANCE, false, 2)).isEqualTo(byNameDescending);
+
+        // With two filters the tiers add up: university 1 is an exact name match but only an infix country match
+        List<Long> byNameAndCountry = List.of(4L, 3L, 8L, 5L, 1L, 2L, 6L);
+        assertThat(searchIndexPages(index, "Art", "Austria", UniversitySearchIndex.RELEVANCE, true, 2)).isEqualTo(byNameAndCountry);
+        assertThat(index.search("Art", "Austria", null, UniversitySearchIndex.RELEVANCE, true, 1, 3, null).content())
+                .isEqualTo(byNameAndCountry.subList(3, 6));
+    }
+
+    private static void assertSearchIndexOrders(UniversitySearchIndex index, Collection<University> universities) {
+        Map<String, Function<University, String>> keys = Map.of(
+                "name", University::getName,
+                "country", University::getCountry);
+        for (String sortBy : List.of("id", "name", "country")) {
+            Comparator<University> order = sortBy.equals("id")
+                    ? Comparator.comparing(University::getId)
+                    : Comparator.comparing(keys.get(sortBy)).thenComparing(University::getId);
+            for (boolean ascending : List.of(true, false)) {
+                // "Label" is answered by ranking trigram candidates, "La" by walking the sort order
+                for (String name : List.of("Label", "La")) {
+                    List<Long> expected = universities.stream()
+                            .sorted(ascending ? order : order.reversed())
+                            .map(University::getId)
+                            .toList();
+                    assertThat(searchIndexPages(index, name, null, sortBy, ascending, 20)).as("%s %s", sortBy, ascending).isEqualTo(expected);
+                }
+                List<Long> inCountries = universities.stream()
+                        .filter(university -> university.getCountry().contains("ry 1"))
+                        .sorted(ascending ? order : order.reversed())
+                        .map(University::getId)
+                        .toList();
+                assertThat(searchIndexPages(index, null, "ry 1", sortBy, ascending, 20)).isEqualTo(inCountries);
+            }
+        }
+    }
+
+    /**
+     * Every result of an index search, read page by page through the next cursors.
+     */
+    private static List<Long> searchIndexPages(UniversitySearchIndex index, String name, String country, String sortBy,
+                                               boolean ascending, int size) {
+        CursorSlice<Long> slice = index.search(name, country, null, sortBy, ascending, 0, size, null);
+        List<Long> ids = new ArrayList<>(slice.content());
+        while (slice.nextCursor() != null) {
+            slice = index.search(name, country, null, sortBy, ascending, 0, size, UniversityCursor.decode(slice.nextCursor()));
+            ids.addAll(slice.content());
+        }
+        return ids;
+    }
+
+    @Test
+    @Order(43)
+    public void testResponseCacheTracksInvalidationsPerResource() throws Exception {
+        ResponseCache cache = new ResponseCache(true, 1000);
+        CachedResponse response = new CachedResponse(new byte[400], new HttpHeaders());
+
+        // A write to another resource does not keep a response out of the cache, a write to its own resource does
+        long generation = cache.generation("universities/1");
+        cache.invalidate(ResponseCache.MODULES, 7L);
+        cache.put("universities/1", "json", response, generation);
+        assertThat(cache.get("universities/1", "json")).isSameAs(response);
+        generation = cache.generation("universities/2");
+        cache.invalidate(ResponseCache.UNIVERSITIES, 2L);
+        cache.put("universities/2", "json", response, generation);
+        assertThat(cache.get("universities/2", "json")).isNull();
+
+        // Over its size, the cache drops the resources read least recently
+        cache.put("universities/2", "json", response, cache.generation("universities/2"));
+        cache.get("universities/1", "json");
+        cache.put("universities/3", "json", response, cache.generation("universities/3"));
+        assertThat(cache.get("universities/1", "json")).isSameAs(response);
+        assertThat(cache.get("universities/2", "json")).isNull();
+        assertThat(cache.get("universities/3", "json")).isSameAs(response);
+        assertThat(cache.statistics()).containsEntry("evictions", 1L).containsEntry("bytes", 800L);
+
+        // Concurrent reads, stores and invalidations leave the size accounting consistent
+        ResponseCache shared = new ResponseCache(true, 100_000);
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Void>> workers = IntStream.range(0, 8).mapToObj(worker -> CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    long id = (worker * 31L + i) % 50;
+                    String resource = ResponseCache.UNIVERSITIES + "/" + id;
+                    switch (i % 3) {
+                        case 0 -> shared.put(resource, "json", response, shared.generation(resource));
+                        case 1 -> shared.get(resource, "json");
+                        default -> shared.invalidate(ResponseCache.UNIVERSITIES, (id + 1) % 50);
+                    }
+                }
+            }, executor)).toList();
+            CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdown();
+        }
+        Map<String, Object> statistics = shared.statistics();
+        assertThat(statistics.get("bytes")).isEqualTo(400L * (Integer) statistics.get("resources"));
+    }
+
+    @Test
+    @Order(44)
+    public void testNotModifiedIsAnsweredBeforeLoading() throws Exception {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        URI modules = URI.create("http://localhost:8080/universities/" + createdUniversityId + "/modules");
+        URI stream = URI.create("http://localhost:8080/modules");
+        HttpResponse<Void> page = httpClient.send(HttpRequest.newBuilder(modules).build(), HttpResponse.BodyHandlers.discarding());
+        HttpResponse<Void> lines = httpClient.send(HttpRequest.newBuilder(stream).header("Accept", "application/x-ndjson").build(),
+                HttpResponse.BodyHandlers.discarding());
+        String before = prometheus(httpClient);
+
+        for (int i = 0; i < 3; i++) {
+            HttpResponse<String> notModified = httpClient.send(HttpRequest.newBuilder(modules)
+                    .header("If-None-Match", page.headers().firstValue("ETag").orElseThrow()).build(), HttpResponse.BodyHandlers.ofString());
+            assertThat(notModified.statusCode()).isEqualTo(304);
+            assertThat(notModified.body()).isEmpty();
+            HttpResponse<String> streamNotModified = httpClient.send(HttpRequest.newBuilder(stream).header("Accept", "application/x-ndjson")
+                    .header("If-None-Match", lines.headers().firstValue("ETag").orElseThrow()).build(), HttpResponse.BodyHandlers.ofString());
+            assertThat(streamNotModified.statusCode()).isEqualTo(304);
+            assertThat(streamNotModified.body()).isEmpty();
+        }
+        String after = prometheus(httpClient);
+
+        // Each 304 ran the aggregate version query and nothing else; the modules were never loaded
+        String moduleService = "class=\"" + ModuleService.class.getName() + "\"";
+        for (String loading : List.of("getModulesByUniversityId", "forEachAfter")) {
+            assertThat(prometheusDelta(before, after, "service_invocations_seconds_count", moduleService, "method=\"" + loading + "\""))
+                    .as(loading).isZero();
+        }
+        assertThat(prometheusDelta(before, after, "service_invocations_seconds_count", moduleService, "method=\"aggregateVersionByUniversityId\""))
+                .isEqualTo(3);
+        String uri = "uri=\"/universities/{universityId}/modules\"";
+        assertThat(prometheusDelta(before, after, "http_server_requests_sql_statements_count", uri)).isEqualTo(3);
+        assertThat(prometheusDelta(before, after, "http_server_requests_sql_statements_sum", uri)).isEqualTo(3);
+    }
+
+    @Test
+    @Order(45)
+    public void testNdjsonStreamsOfModulesAndExport() throws Exception {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        HttpResponse<Stream<String>> modules = httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/modules"))
+                .header("Accept", "application/x-ndjson").build(), HttpResponse.BodyHandlers.ofLines());
+        assertThat(modules.headers().firstValue("Content-Type")).hasValueSatisfying(type -> assertThat(type).startsWith("application/x-ndjson"));
+        List<Long> moduleIds = new ArrayList<>();
+        for (String line : modules.body().toList()) {
+            var module = objectMapper.readTree(line);
+            moduleIds.add(module.at("/id").asLong());
+            assertThat(module.at("/_links/self/href").asText()).isEqualTo("http://localhost:8080/modules/" + module.at("/id").asLong());
+        }
+        assertThat(moduleIds).hasSizeGreaterThan(2).isSorted().doesNotHaveDuplicates();
+
+        // The stream resumes after the given id
+        Long resumeAfter = moduleIds.get(1);
+        List<Long> resumed = httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/modules?after=" + resumeAfter))
+                        .header("Accept", "application/x-ndjson").build(), HttpResponse.BodyHandlers.ofLines()).body()
+                .map(line -> readTree(line).at("/id").asLong())
+                .toList();
+        assertThat(resumed).isEqualTo(moduleIds.subList(2, moduleIds.size()));
+
+        // The export embeds every module in its university
+        List<Long> exportedModuleIds = httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/export"))
+                        .header("Accept", "application/x-ndjson").build(), HttpResponse.BodyHandlers.ofLines()).body()
+                .flatMap(line -> readTree(line).at("/modules").findValuesAsText("id").stream())
+                .map(Long::valueOf)
+                .sorted()
+                .toList();
+        assertThat(exportedModuleIds).isEqualTo(moduleIds);
+    }
+
+    @Test
+    @Order(46)
+    public void testPrometheusExportsStatementAndServiceMeters() throws Exception {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        String before = prometheus(httpClient);
+        HttpResponse<Void> search = httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/universities/search?name=Prometheus"))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        assertThat(search.statusCode()).isEqualTo(200);
+        String after = prometheus(httpClient);
+
+        String uri = "uri=\"/universities/search\"";
+        String searchUniversities = "method=\"searchUniversities\"";
+        String universityService = "class=\"" + UniversityService.class.getName() + "\"";
+        assertThat(prometheusDelta(before, after, "http_server_requests_sql_statements_count", uri, "method=\"GET\"")).isEqualTo(1);
+        assertThat(prometheusDelta(before, after, "service_invocations_seconds_count", universityService, searchUniversities)).isEqualTo(1);
+        // Both are exported as histograms, tagged with the application
+        assertThat(after.lines().filter(line -> line.startsWith("http_server_requests_sql_statements_bucket{") && line.contains(uri)))
+                .isNotEmpty()
+                .allSatisfy(line -> assertThat(line).contains("application=\"partner-universities\"", "le=\""));
+        assertThat(after.lines().filter(line -> line.startsWith("service_invocations_seconds_bucket{")
+                && line.contains(universityService) && line.contains(searchUniversities)))
+                .isNotEmpty()
+                .allSatisfy(line -> assertThat(line).contains("application=\"partner-universities\"", "le=\""));
+    }
+
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String prometheus(HttpClient httpClient) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/actuator/prometheus")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    /**
+     * How much the samples of {@code metric} with all the given labels grew between two scrapes.
+     */
+    private static double prometheusDelta(String before, String after, String metric, String... labels) {
+        return prometheusValue(after, metric, labels) - prometheusValue(before, metric, labels);
+    }
+
+    private static double prometheusValue(String scrape, String metric, String... labels) {
+        return scrape.lines()
+                .filter(line -> line.startsWith(metric + "{") && Arrays.stream(labels).allMatch(line::contains))
+                .mapToDouble(line -> Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1)))
+                .sum();
+    }
+
+    private Long createBatchUniversity(String name) throws Exception {
+        University university = new University();
+        university.setName(name);
+        university.setCountry("Country");
+        university.setDepartmentName("Department");
+        return Objects.requireNonNull(client.createUniversity(objectMapper.writeValueAsString(university)).getContent()).getId();
+    }
+
+    /**
+     * Posts a batch of a valid module, one for a university that does not exist and one without a university.
+     */
+    private HttpResponse<String> postModuleBatch(Long universityId, String mode) throws Exception {
+        String batch = "["
+                + "{\"name\":\"Batch Module\",\"semester\":1,\"creditPoints\":5,\"university\":{\"id\":" + universityId + "}},"
+                + "{\"name\":\"Unknown University Module\",\"semester\":1,\"creditPoints\":5,\"university\":{\"id\":" + Long.MAX_VALUE + "}},"
+                + "{\"name\":\"Orphan Module\",\"semester\":1,\"creditPoints\":5}"
+                + "]";
+        return HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:8080/modules/batch?mode=" + mode))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(batch)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static University universityWithModules(String name, int modules) {
+        University university = new University();
+        university.setName(name);
+        university.setCountry("Country");
+        university.setDepartmentName("Department");
+        for (int semester = 1; semester <= modules; semester++) {
+            Module module = new Module();
+            module.setName(name + " Module " + semester);
+            module.setSemester(semester);
+            module.setCreditPoints(5);
+            module.setUniversity(university);
+            university.getModules().add(module);
+        }
+        return university;
+    }
+
+    private boolean modulesCached(Long universityId) {
+        return entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class)
+                .containsCollection(University.class.getName() + ".modules", universityId);
+    }
 }